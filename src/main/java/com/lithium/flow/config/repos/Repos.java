@@ -145,7 +145,7 @@ public class Repos {
 
 			Filer filer = new SvnFiler(svnProvider, revision, findLast);
 			filer = new CachedFiler(filer, config.prefix("configs"));
-			filer = new CachedReadFiler(filer);
+			filer = new CachedReadFiler(filer, config.prefix("configs"));
 			if (config.containsKey("configs.exclude")) {
 				Predicate<Record> predicate = new RegexPathPredicate(config.getList("configs.exclude")).negate();
 				filer = new FilteredFiler(filer, predicate);
@@ -21,25 +21,46 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.lithium.flow.config.Config;
 import com.lithium.flow.io.DecoratedOutputStream;
 import com.lithium.flow.util.Caches;
+import com.lithium.flow.util.CheckedFunction;
+import com.lithium.flow.util.Execute;
+import com.lithium.flow.util.Logs;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
+import org.slf4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 
 /**
  * Decorates an instance of {@link Filer} to cache records for a specified amount of time.
+ * <p>
+ * Entries older than {@code cache.refreshTime} are reloaded in the background on their next access while the old
+ * value is still served, so hot paths never block on the delegate. Records for missing paths are cached separately
+ * for {@code cache.missTime}, and both caches are bounded by {@code cache.maxRecords}. Listings are held as compact
+ * {@link RecordList}s unless {@code cache.compact} is false.
  *
  * @author Matt Ayres
  */
 public class CachedFiler extends DecoratedFiler {
+	private static final Logger log = Logs.getLogger();
+
 	private final LoadingCache<String, List<Record>> dirCache;
 	private final LoadingCache<String, Record> fileCache;
+	private final Cache<String, Record> missCache;
 	private final boolean dirOnly;
+	private final boolean stats;
 
 	public CachedFiler(@Nonnull Filer delegate, @Nonnull Config config) {
 		super(checkNotNull(delegate));
@@ -47,12 +68,39 @@ public class CachedFiler extends DecoratedFiler {
 
 		int concurrency = config.getInt("cache.concurrency", 4);
 		long expireTime = config.getTime("cache.expireTime", "1m");
+		long refreshTime = config.getTime("cache.refreshTime", String.valueOf(expireTime / 2));
+		long missTime = config.getTime("cache.missTime", String.valueOf(expireTime));
+		long maxRecords = config.getLong("cache.maxRecords", 1_000_000);
 		dirOnly = config.getBoolean("cache.dirOnly", false);
+		stats = config.getBoolean("cache.stats", false);
+		boolean compact = config.getBoolean("cache.compact", true);
+
+		CheckedFunction<String, List<Record>, Exception> lister = compact
+				? path -> RecordList.of(delegate.listRecords(path))
+				: delegate::listRecords;
+		dirCache = Caches.buildAsync(lister, Execute.executor(),
+				b -> configure(b, concurrency, expireTime, refreshTime, stats)
+						.maximumWeight(maxRecords)
+						.weigher((path, records) -> records.size() + 1));
+		fileCache = Caches.buildAsync(delegate::getRecord, Execute.executor(),
+				b -> configure(b, concurrency, expireTime, refreshTime, stats)
+						.maximumSize(maxRecords));
+
+		CacheBuilder<Object, Object> missBuilder = CacheBuilder.newBuilder()
+				.concurrencyLevel(concurrency)
+				.expireAfterWrite(missTime, TimeUnit.MILLISECONDS)
+				.maximumSize(maxRecords);
+		missCache = (stats ? missBuilder.recordStats() : missBuilder).build();
+	}
 
-		dirCache = Caches.build(delegate::listRecords,
-				b -> b.softValues().concurrencyLevel(concurrency).expireAfterWrite(expireTime, TimeUnit.MILLISECONDS));
-		fileCache = Caches.build(delegate::getRecord,
-				b -> b.softValues().concurrencyLevel(concurrency).expireAfterWrite(expireTime, TimeUnit.MILLISECONDS));
+	@Nonnull
+	private static <K, V> CacheBuilder<K, V> configure(@Nonnull CacheBuilder<K, V> builder, int concurrency,
+			long expireTime, long refreshTime, boolean stats) {
+		builder.concurrencyLevel(concurrency).expireAfterWrite(expireTime, TimeUnit.MILLISECONDS);
+		if (refreshTime > 0 && refreshTime < expireTime) {
+			builder.refreshAfterWrite(refreshTime, TimeUnit.MILLISECONDS);
+		}
+		return stats ? builder.recordStats() : builder;
 	}
 
 	@Override
@@ -75,7 +123,58 @@ public class CachedFiler extends DecoratedFiler {
 			return Record.noFile(getUri(), path);
 		}
 
-		return Caches.get(fileCache, path, IOException.class);
+		Record missing = missCache.getIfPresent(path);
+		if (missing != null) {
+			return missing;
+		}
+
+		return cacheRecord(path, Caches.get(fileCache, path, IOException.class));
+	}
+
+	/**
+	 * Moves a record for a missing path over to the miss cache, so it lives by that cache's expiry instead.
+	 */
+	@Nonnull
+	private Record cacheRecord(@Nonnull String path, @Nonnull Record record) {
+		if (!record.exists()) {
+			missCache.put(path, record);
+			fileCache.invalidate(path);
+		}
+		return record;
+	}
+
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		List<Record> records = new ArrayList<>();
+		if (dirOnly) {
+			for (String path : paths) {
+				records.add(getRecord(path));
+			}
+			return records;
+		}
+
+		Map<String, Record> found = new HashMap<>(fileCache.getAllPresent(paths));
+		found.putAll(missCache.getAllPresent(paths));
+		List<String> missing = new ArrayList<>(new LinkedHashSet<>(paths));
+		missing.removeAll(found.keySet());
+		if (!missing.isEmpty()) {
+			List<Record> loaded = super.getRecords(missing);
+			for (int i = 0; i < missing.size(); i++) {
+				Record record = loaded.get(i);
+				if (record.exists()) {
+					fileCache.put(missing.get(i), record);
+				} else {
+					missCache.put(missing.get(i), record);
+				}
+				found.put(missing.get(i), record);
+			}
+		}
+
+		for (String path : paths) {
+			records.add(found.get(path));
+		}
+		return records;
 	}
 
 	@Override
@@ -84,6 +183,9 @@ public class CachedFiler extends DecoratedFiler {
 		if (!getRecord(path).exists()) {
 			super.createDirs(path);
 			dirCache.invalidate(path);
+			dirCache.invalidate(RecordPath.getFolder(path));
+			fileCache.invalidate(path);
+			missCache.invalidate(path);
 		}
 	}
 
@@ -97,14 +199,46 @@ public class CachedFiler extends DecoratedFiler {
 				super.close();
 				dirCache.invalidate(RecordPath.getFolder(path));
 				fileCache.invalidate(path);
+				missCache.invalidate(path);
 			}
 		};
 	}
 
+	/**
+	 * Returns stats for directory listings, which are only recorded when {@code cache.stats} is set.
+	 */
+	@Nonnull
+	public CacheStats getDirStats() {
+		return dirCache.stats();
+	}
+
+	/**
+	 * Returns stats for records of existing paths, which are only recorded when {@code cache.stats} is set.
+	 */
+	@Nonnull
+	public CacheStats getFileStats() {
+		return fileCache.stats();
+	}
+
+	/**
+	 * Returns stats for records of missing paths, which are only recorded when {@code cache.stats} is set.
+	 */
+	@Nonnull
+	public CacheStats getMissStats() {
+		return missCache.stats();
+	}
+
 	@Override
 	public void close() throws IOException {
+		if (stats) {
+			log.info("dir cache: {}", getDirStats());
+			log.info("file cache: {}", getFileStats());
+			log.info("miss cache: {}", getMissStats());
+		}
+
 		dirCache.invalidateAll();
 		fileCache.invalidateAll();
+		missCache.invalidateAll();
 		super.close();
 	}
 }
@@ -16,63 +16,354 @@
 
 package com.lithium.flow.filer;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
-import com.lithium.flow.util.Caches;
+import com.lithium.flow.config.Config;
+import com.lithium.flow.config.Configs;
+import com.lithium.flow.util.Logs;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
 
 /**
- * Decorates an instance of {@link Filer} to cache file reads in memory.
- * Cached entries are only invalidated when the file time changes.
+ * Decorates an instance of {@link Filer} to cache file reads in fixed-size blocks, so ranges of large files are
+ * cached without the rest of the file.
+ * <p>
+ * Blocks live in a heap tier bounded by {@code cache.read.heapBytes} and, if {@code cache.read.dir} is set, in a
+ * disk tier bounded by {@code cache.read.diskBytes} that is evicted least recently used and survives restarts.
+ * Blocks are keyed by filer uri, path, file time and size, so they are only invalidated when those change, which
+ * is checked at most once per {@code cache.read.validateTime} per file (0 for every read, -1 for never after the
+ * first).
  *
  * @author Matt Ayres
  */
 public class CachedReadFiler extends DecoratedFiler {
-	private final LoadingCache<String, Pair<Long, byte[]>> cache;
+	private static final Logger log = Logs.getLogger();
+
+	private final Filer delegate;
+	private final int blockSize;
+	private final long validateTime;
+	private final Cache<String, Meta> metas;
+	private final Cache<String, byte[]> heap;
+	private final DiskTier disk;
 
 	public CachedReadFiler(@Nonnull Filer delegate) {
+		this(delegate, Configs.empty());
+	}
+
+	public CachedReadFiler(@Nonnull Filer delegate, @Nonnull Config config) {
 		super(checkNotNull(delegate));
-		cache = Caches.build(path -> {
-			try (InputStream in = delegate.readFile(path)) {
-				ByteArrayOutputStream out = new ByteArrayOutputStream();
-				IOUtils.copy(in, out);
-				return Pair.of(delegate.getRecord(path).getTime(), out.toByteArray());
-			}
-		}, CacheBuilder::softValues);
+		checkNotNull(config);
+		this.delegate = delegate;
+		bypassDelegateRange = true;
+
+		blockSize = config.getInt("cache.read.blockSize", 1024 * 1024);
+		checkArgument(blockSize > 0, "blockSize must be positive: %s", blockSize);
+		validateTime = config.getTime("cache.read.validateTime", "0");
+		metas = CacheBuilder.newBuilder().maximumSize(config.getLong("cache.read.maxFiles", 100_000)).build();
+		heap = CacheBuilder.newBuilder()
+				.maximumWeight(config.getLong("cache.read.heapBytes", 64L * 1024 * 1024))
+				.<String, byte[]>weigher((key, block) -> block.length)
+				.build();
+
+		String dir = config.getString("cache.read.dir", "");
+		disk = dir.isEmpty() ? null : new DiskTier(new File(dir), config.getLong("cache.read.diskBytes",
+				10L * 1024 * 1024 * 1024));
 	}
 
 	@Override
 	@Nonnull
 	public InputStream readFile(@Nonnull String path) throws IOException {
 		checkNotNull(path);
+		Meta meta = getMeta(path);
+		return new BlockInputStream(path, meta, 0, meta.size);
+	}
 
-		Pair<Long, byte[]> pair = cache.getIfPresent(path);
-		if (pair != null) {
-			if (pair.getLeft().equals(super.getRecord(path).getTime())) {
-				return new ByteArrayInputStream(pair.getRight());
-			} else {
-				cache.invalidate(path);
-			}
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		checkNotNull(path);
+		checkArgument(offset >= 0, "offset must be non-negative: %s", offset);
+		checkArgument(length >= 0, "length must be non-negative: %s", length);
+
+		Meta meta = getMeta(path);
+		long start = Math.min(offset, meta.size);
+		return new BlockInputStream(path, meta, start, Math.min(meta.size, start + length));
+	}
+
+	@Nonnull
+	private Meta getMeta(@Nonnull String path) throws IOException {
+		Meta meta = metas.getIfPresent(path);
+		long now = System.currentTimeMillis();
+		if (meta != null && (validateTime < 0 || (validateTime > 0 && now - meta.checked < validateTime))) {
+			return meta;
 		}
 
-		return new ByteArrayInputStream(Caches.get(cache, path, IOException.class).getRight());
+		Record record = super.getRecord(path);
+		if (!record.exists()) {
+			metas.invalidate(path);
+			throw new IOException("file not found: " + path);
+		}
+
+		if (meta == null || meta.time != record.getTime() || meta.size != record.getSize()) {
+			meta = new Meta(record.getTime(), record.getSize(), now);
+			metas.put(path, meta);
+		} else {
+			meta.checked = now;
+		}
+		return meta;
 	}
 
 	@Override
 	public void close() throws IOException {
-		cache.invalidateAll();
+		metas.invalidateAll();
+		heap.invalidateAll();
 		super.close();
 	}
+
+	private static class Meta {
+		private final long time;
+		private final long size;
+		private volatile long checked;
+
+		private Meta(long time, long size, long checked) {
+			this.time = time;
+			this.size = size;
+			this.checked = checked;
+		}
+	}
+
+	/**
+	 * Reads blocks from the cache tiers, streaming runs of missing blocks from a single delegate read.
+	 */
+	private class BlockInputStream extends InputStream {
+		private final String path;
+		private final String prefix;
+		private final Meta meta;
+		private final long end;
+		private long position;
+		private byte[] block;
+		private long blockStart;
+		private InputStream source;
+		private long sourcePosition;
+
+		private BlockInputStream(@Nonnull String path, @Nonnull Meta meta, long start, long end) {
+			this.path = path;
+			this.meta = meta;
+			this.end = end;
+			position = start;
+			// the delegate uri keeps filers on different backends sharing cache.read.dir apart
+			String hash = Hashing.sha256().newHasher()
+					.putString(getUri().toString(), UTF_8)
+					.putByte((byte) 0)
+					.putString(path, UTF_8)
+					.hash().toString();
+			prefix = hash.substring(0, 32) + "-" + meta.time + "-" + meta.size + "-";
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+			if (position >= end) {
+				return -1;
+			}
+			if (len == 0) {
+				return 0;
+			}
+
+			if (block == null || position < blockStart || position >= blockStart + block.length) {
+				loadBlock(position / blockSize);
+			}
+
+			int count = (int) Math.min(len, Math.min(blockStart + block.length, end) - position);
+			System.arraycopy(block, (int) (position - blockStart), b, off, count);
+			position += count;
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			long count = Math.max(0, Math.min(n, end - position));
+			position += count;
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return block == null ? 0 : (int) Math.max(0, Math.min(blockStart + block.length, end) - position);
+		}
+
+		private void loadBlock(long index) throws IOException {
+			String key = prefix + index;
+			long offset = index * blockSize;
+			int length = (int) Math.min(blockSize, meta.size - offset);
+
+			block = heap.getIfPresent(key);
+			if (block == null && disk != null) {
+				block = disk.get(key, length);
+				if (block != null) {
+					heap.put(key, block);
+				}
+			}
+
+			if (block == null) {
+				block = fetchBlock(offset, length);
+				heap.put(key, block);
+				if (disk != null) {
+					disk.put(key, block);
+				}
+			} else {
+				closeSource();
+			}
+
+			blockStart = offset;
+		}
+
+		@Nonnull
+		private byte[] fetchBlock(long offset, int length) throws IOException {
+			if (source == null || sourcePosition != offset) {
+				closeSource();
+				source = delegate.readRange(path, offset, meta.size - offset);
+				sourcePosition = offset;
+			}
+
+			byte[] data = new byte[length];
+			IOUtils.readFully(source, data);
+			sourcePosition += length;
+			return data;
+		}
+
+		private void closeSource() throws IOException {
+			if (source != null) {
+				source.close();
+				source = null;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			closeSource();
+			block = null;
+		}
+	}
+
+	/**
+	 * Keeps blocks as files in a local dir, evicting the least recently used once over the byte limit.
+	 */
+	private static class DiskTier {
+		private final File dir;
+		private final long maxBytes;
+		private final Map<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+		private long bytes;
+
+		private DiskTier(@Nonnull File dir, long maxBytes) {
+			this.dir = dir;
+			this.maxBytes = maxBytes;
+
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IllegalStateException("failed to create cache dir: " + dir);
+			}
+
+			File[] files = dir.listFiles();
+			if (files != null) {
+				Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+				for (File file : files) {
+					if (file.getName().contains(".tmp")) {
+						file.delete();
+					} else {
+						sizes.put(file.getName(), file.length());
+						bytes += file.length();
+					}
+				}
+			}
+			evict();
+			log.debug("read cache: {} blocks, {} bytes in {}", sizes.size(), bytes, dir);
+		}
+
+		@Nullable
+		private byte[] get(@Nonnull String key, int length) {
+			synchronized (this) {
+				if (sizes.get(key) == null) {
+					return null;
+				}
+			}
+
+			File file = new File(dir, key);
+			try {
+				byte[] block = Files.readAllBytes(file.toPath());
+				if (block.length == length) {
+					file.setLastModified(System.currentTimeMillis());
+					return block;
+				}
+			} catch (IOException e) {
+				log.debug("read cache: failed to read {}", file, e);
+			}
+
+			remove(key);
+			return null;
+		}
+
+		private void put(@Nonnull String key, @Nonnull byte[] block) {
+			File file = new File(dir, key);
+			File tempFile = new File(dir, key + ".tmp" + System.nanoTime());
+			try {
+				Files.write(tempFile.toPath(), block);
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				log.debug("read cache: failed to write {}", file, e);
+				tempFile.delete();
+				return;
+			}
+
+			synchronized (this) {
+				Long old = sizes.put(key, (long) block.length);
+				bytes += block.length - (old == null ? 0 : old);
+			}
+			evict();
+		}
+
+		private synchronized void remove(@Nonnull String key) {
+			Long old = sizes.remove(key);
+			if (old != null) {
+				bytes -= old;
+				new File(dir, key).delete();
+			}
+		}
+
+		private synchronized void evict() {
+			Iterator<Map.Entry<String, Long>> it = sizes.entrySet().iterator();
+			while (bytes > maxBytes && it.hasNext()) {
+				Map.Entry<String, Long> entry = it.next();
+				new File(dir, entry.getKey()).delete();
+				bytes -= entry.getValue();
+				it.remove();
+			}
+		}
+	}
 }
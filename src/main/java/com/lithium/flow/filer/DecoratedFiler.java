@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -39,6 +40,9 @@ public class DecoratedFiler implements Filer {
 	protected boolean bypassDelegateFind;
 	protected boolean bypassDelegateHash;
 	protected boolean bypassDelegateCopy;
+	protected boolean bypassDelegateRange;
+	protected boolean bypassDelegateDelete;
+	protected boolean bypassDelegateRecords;
 
 	public DecoratedFiler(@Nonnull Filer delegate) {
 		this.delegate = checkNotNull(delegate);
@@ -62,6 +66,16 @@ public class DecoratedFiler implements Filer {
 		return delegate.getRecord(path);
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		if (bypassDelegateRecords) {
+			return Filer.super.getRecords(paths);
+		} else {
+			return delegate.getRecords(paths);
+		}
+	}
+
 	@Override
 	@Nonnull
 	public Stream<Record> findRecords(@Nonnull String path, int threads) throws IOException {
@@ -88,6 +102,25 @@ public class DecoratedFiler implements Filer {
 		return delegate.readFile(path);
 	}
 
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		if (bypassDelegateRange) {
+			return Filer.super.readRange(path, offset, length);
+		} else {
+			return delegate.readRange(path, offset, length);
+		}
+	}
+
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		if (bypassDelegateRange) {
+			return Filer.super.readAt(path, position, b, off, len);
+		} else {
+			return delegate.readAt(path, position, b, off, len);
+		}
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
@@ -116,6 +149,15 @@ public class DecoratedFiler implements Filer {
 		delegate.deleteFile(path);
 	}
 
+	@Override
+	public void deleteFiles(@Nonnull Collection<String> paths) throws IOException {
+		if (bypassDelegateDelete) {
+			Filer.super.deleteFiles(paths);
+		} else {
+			delegate.deleteFiles(paths);
+		}
+	}
+
 	@Override
 	public void createDirs(@Nonnull String path) throws IOException {
 		delegate.createDirs(path);
@@ -126,6 +168,15 @@ public class DecoratedFiler implements Filer {
 		delegate.deleteDir(path);
 	}
 
+	@Override
+	public void deleteTree(@Nonnull String path) throws IOException {
+		if (bypassDelegateDelete) {
+			Filer.super.deleteTree(path);
+		} else {
+			delegate.deleteTree(path);
+		}
+	}
+
 	@Override
 	public void renameFile(@Nonnull String oldPath, @Nonnull String newPath) throws IOException {
 		delegate.renameFile(oldPath, newPath);
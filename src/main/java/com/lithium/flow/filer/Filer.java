@@ -16,6 +16,8 @@
 
 package com.lithium.flow.filer;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.lithium.flow.io.DataIo;
 import com.lithium.flow.util.BaseEncodings;
 import com.lithium.flow.util.HashEncoder;
@@ -26,6 +28,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -33,6 +37,8 @@ import javax.annotation.Nonnull;
 
 import org.apache.commons.io.IOUtils;
 
+import com.google.common.io.ByteStreams;
+
 /**
  * A file system representation to get file records, read and write streams, and change attributes.
  *
@@ -48,11 +54,31 @@ public interface Filer extends Closeable {
 	@Nonnull
 	Record getRecord(@Nonnull String path) throws IOException;
 
+	@Nonnull
+	default List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		List<Record> records = new ArrayList<>();
+		for (String path : paths) {
+			records.add(getRecord(path));
+		}
+		return records;
+	}
+
 	@Nonnull
 	default Stream<Record> findRecords(@Nonnull String path, int threads) throws IOException {
 		return RecordFinder.stream(this, path, threads);
 	}
 
+	/**
+	 * Collects every record under the path into a compact {@link RecordList}, for listings too large to hold as
+	 * separate records.
+	 */
+	@Nonnull
+	default RecordList collectRecords(@Nonnull String path, int threads) throws IOException {
+		try (Stream<Record> stream = findRecords(path, threads)) {
+			return stream.collect(RecordList.collector());
+		}
+	}
+
 	@Nonnull
 	default String getHash(@Nonnull String path, @Nonnull String hash, @Nonnull String base) throws IOException {
 		return new HashEncoder(HashFunctions.of(hash), BaseEncodings.of(base)).process(readFile(path));
@@ -61,6 +87,28 @@ public interface Filer extends Closeable {
 	@Nonnull
 	InputStream readFile(@Nonnull String path) throws IOException;
 
+	@Nonnull
+	default InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		checkArgument(offset >= 0, "offset must be non-negative: %s", offset);
+		checkArgument(length >= 0, "length must be non-negative: %s", length);
+
+		InputStream in = readFile(path);
+		try {
+			IOUtils.skip(in, offset);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return ByteStreams.limit(in, length);
+	}
+
+	default int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		try (InputStream in = readRange(path, position, len)) {
+			int count = IOUtils.read(in, b, off, len);
+			return count == 0 && len > 0 ? -1 : count;
+		}
+	}
+
 	@Nonnull
 	OutputStream writeFile(@Nonnull String path) throws IOException;
 
@@ -74,12 +122,32 @@ public interface Filer extends Closeable {
 
 	void deleteFile(@Nonnull String path) throws IOException;
 
+	default void deleteFiles(@Nonnull Collection<String> paths) throws IOException {
+		for (String path : paths) {
+			deleteFile(path);
+		}
+	}
+
 	void renameFile(@Nonnull String oldPath, @Nonnull String newPath) throws IOException;
 
 	void createDirs(@Nonnull String path) throws IOException;
 
 	void deleteDir(@Nonnull String path) throws IOException;
 
+	default void deleteTree(@Nonnull String path) throws IOException {
+		List<String> files = new ArrayList<>();
+		for (Record record : listRecords(path)) {
+			if (record.isDir()) {
+				deleteTree(record.getPath());
+			} else {
+				files.add(record.getPath());
+			}
+		}
+
+		deleteFiles(files);
+		deleteDir(path);
+	}
+
 	default void createFolder(@Nonnull String path) throws IOException {
 		createDirs(RecordPath.getFolder(path));
 	}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.filer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+import com.lithium.flow.config.Config;
+import com.lithium.flow.config.exception.IllegalConfigException;
+import com.lithium.flow.util.Executable;
+import com.lithium.flow.util.LimiterInputStream;
+import com.lithium.flow.util.Logs;
+import com.lithium.flow.util.Measure;
+import com.lithium.flow.util.MeasureInputStream;
+import com.lithium.flow.util.Progress;
+import com.lithium.flow.util.Threader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Mirrors a tree from one filer to another.
+ * <p>
+ * Each pair of dirs is listed on both sides, sorted by name and merge-joined into adds, changes and deletes, so the
+ * diff streams out a dir at a time without either tree in memory. With {@code sync.compare} set to {@code time}
+ * (the default) files match when their sizes agree and the dest is not older than the source, with {@code size}
+ * when their sizes agree, and with {@code hash} when their sizes and {@link Filer#getHash} agree. Dest-only entries
+ * are deleted only with {@code sync.delete}, except where the same name is a file on one side and a dir on the
+ * other.
+ * <p>
+ * Transfers run on their own threads behind a bounded queue, limited to {@code sync.bandwidth} bytes per second if
+ * set, and progress is logged as they go. With {@code sync.checkpoint} set, each dir is appended to that local file
+ * once it and everything under it are in sync, so a sync that fails or is killed resumes without listing those dirs
+ * again. The file is removed once a sync completes.
+ *
+ * @author Matt Ayres
+ */
+public class FilerSync {
+	private static final Logger log = Logs.getLogger();
+	private static final Comparator<Record> ORDER = SortedFiler.NAME_ASC.thenComparing(Record::isDir);
+
+	private final Filer srcFiler;
+	private final Filer destFiler;
+	private final int listThreads;
+	private final int threads;
+	private final int retries;
+	private final int maxQueued;
+	private final String compare;
+	private final String hash;
+	private final String hashBase;
+	private final boolean delete;
+	private final RateLimiter limiter;
+	private final File checkpointFile;
+	private final long logInterval;
+	private final long avgInterval;
+
+	public FilerSync(@Nonnull Filer srcFiler, @Nonnull Filer destFiler, @Nonnull Config config) {
+		this.srcFiler = checkNotNull(srcFiler);
+		this.destFiler = checkNotNull(destFiler);
+		checkNotNull(config);
+
+		listThreads = config.getInt("sync.listThreads", 8);
+		threads = config.getInt("sync.threads", 8);
+		retries = config.getInt("sync.retries", 2);
+		maxQueued = config.getInt("sync.maxQueued", 10000);
+		compare = config.getString("sync.compare", "time");
+		hash = config.getString("sync.hash", "md5");
+		hashBase = config.getString("sync.hashBase", "base16.lowerCase");
+		delete = config.getBoolean("sync.delete", false);
+		long bandwidth = config.getLong("sync.bandwidth", 0);
+		limiter = bandwidth > 0 ? RateLimiter.create(bandwidth) : null;
+		checkpointFile = config.containsKey("sync.checkpoint") ? new File(config.getString("sync.checkpoint")) : null;
+		logInterval = config.getTime("sync.logInterval", "5s");
+		avgInterval = config.getTime("sync.avgInterval", "1m");
+
+		if (!compare.matches("time|size|hash")) {
+			throw new IllegalConfigException("sync.compare", compare, "time, size or hash", null);
+		}
+	}
+
+	/**
+	 * Syncs the dest dir to match the source dir, or resumes an earlier sync from its checkpoint.
+	 *
+	 * @throws IOException if anything could not be synced, in which case calling this again resumes the sync
+	 */
+	public void sync(@Nonnull String srcPath, @Nonnull String destPath) throws IOException {
+		checkNotNull(srcPath);
+		checkNotNull(destPath);
+
+		if (!srcFiler.getRecord(srcPath).isDir()) {
+			throw new IOException("source is not a dir: " + srcPath);
+		}
+		Record destRecord = destFiler.getRecord(destPath);
+		if (destRecord.exists() && !destRecord.isDir()) {
+			throw new IOException("dest is not a dir: " + destPath);
+		}
+
+		Set<String> synced = readCheckpoint();
+		log.info("sync: {} to {}, {} dirs already synced", srcPath, destPath, synced.size());
+
+		try (Run run = new Run(synced)) {
+			Node root = new Node(null, "", srcPath, destPath, destRecord.exists());
+			if (synced.contains(root.relPath)) {
+				root.pending.set(0);
+			} else {
+				run.syncDir(root);
+			}
+			run.await();
+
+			if (root.pending.get() > 0) {
+				throw new IOException("sync failed for " + run.failed.get() + " tasks under " + srcPath);
+			}
+		}
+
+		if (checkpointFile != null) {
+			Files.deleteIfExists(checkpointFile.toPath());
+		}
+		log.info("sync: {} to {} complete", srcPath, destPath);
+	}
+
+	@Nonnull
+	private Set<String> readCheckpoint() throws IOException {
+		Set<String> synced = new HashSet<>();
+		if (checkpointFile != null && checkpointFile.exists()) {
+			synced.addAll(Files.readAllLines(checkpointFile.toPath(), UTF_8));
+		}
+		return synced;
+	}
+
+	private class Run implements AutoCloseable {
+		private final Set<String> synced;
+		private final BufferedWriter checkpoint;
+		private final Threader listThreader = new Threader(listThreads).withRetries(retries);
+		private final Threader transferThreader = new Threader(threads).withRetries(retries).withMaxQueued(maxQueued);
+		private final Progress progress = new Progress();
+		private final Measure dirs = progress.counter("dirs");
+		private final Measure files = progress.counter("files");
+		private final Measure copies = progress.counter("copies");
+		private final Measure deletes = progress.counter("deletes");
+		private final Measure bytes = progress.bandwidth("bytes").useForEta();
+		private final AtomicInteger failed = new AtomicInteger();
+
+		private Run(@Nonnull Set<String> synced) throws IOException {
+			this.synced = synced;
+			checkpoint = checkpointFile == null ? null
+					: Files.newBufferedWriter(checkpointFile.toPath(), UTF_8, CREATE, APPEND);
+			progress.start(logInterval, avgInterval);
+		}
+
+		private void syncDir(@Nonnull Node node) {
+			dirs.incTodo();
+			execute(listThreader, "sync:" + node.srcPath, node, () -> {
+				List<Record> srcRecords = sort(srcFiler.listRecords(node.srcPath));
+				List<Record> destRecords;
+				if (node.destExists) {
+					destRecords = sort(destFiler.listRecords(node.destPath));
+				} else {
+					destFiler.createDirs(node.destPath);
+					destRecords = Collections.emptyList();
+				}
+
+				List<Record> adds = new ArrayList<>();
+				List<Record> pairs = new ArrayList<>();
+				List<Record> extras = new ArrayList<>();
+				int i = 0;
+				int j = 0;
+				while (i < srcRecords.size() || j < destRecords.size()) {
+					Record srcRecord = i < srcRecords.size() ? srcRecords.get(i) : null;
+					Record destRecord = j < destRecords.size() ? destRecords.get(j) : null;
+					int cmp = srcRecord == null ? 1 : destRecord == null ? -1 : ORDER.compare(srcRecord, destRecord);
+
+					if (cmp == 0) {
+						pairs.add(srcRecord);
+						pairs.add(destRecord);
+						i++;
+						j++;
+					} else if (srcRecord != null && destRecord != null
+							&& srcRecord.getName().equals(destRecord.getName())) {
+						// a file on one side and a dir on the other, so the dest has to go before the source can land
+						deletes.incTodo();
+						remove(destRecord);
+						deletes.incDone();
+						adds.add(srcRecord);
+						i++;
+						j++;
+					} else if (cmp < 0) {
+						adds.add(srcRecord);
+						i++;
+					} else {
+						extras.add(destRecord);
+						j++;
+					}
+				}
+
+				// only submitted once this dir is listed, so a retry never submits them twice
+				for (Record record : adds) {
+					if (record.isDir()) {
+						syncChild(node, record, false);
+					} else {
+						transfer(node, record, null);
+					}
+				}
+				for (int k = 0; k < pairs.size(); k += 2) {
+					if (pairs.get(k).isDir()) {
+						syncChild(node, pairs.get(k), true);
+					} else {
+						transfer(node, pairs.get(k), pairs.get(k + 1));
+					}
+				}
+				if (delete) {
+					extras.forEach(record -> delete(node, record));
+				}
+				dirs.incDone();
+			});
+		}
+
+		private void syncChild(@Nonnull Node parent, @Nonnull Record record, boolean destExists) {
+			String name = record.getName();
+			String relPath = parent.relPath.isEmpty() ? name : parent.relPath + "/" + name;
+			if (synced.contains(relPath)) {
+				dirs.incSkip();
+				return;
+			}
+
+			parent.pending.incrementAndGet();
+			syncDir(new Node(parent, relPath, record.getPath(), destPath(parent, name), destExists));
+		}
+
+		private void transfer(@Nonnull Node node, @Nonnull Record srcRecord, @Nullable Record destRecord) {
+			String destPath = destPath(node, srcRecord.getName());
+			files.incTodo();
+			node.pending.incrementAndGet();
+			execute(transferThreader, "sync:" + srcRecord.getPath(), node, () -> {
+				if (destRecord == null || !matches(srcRecord, destRecord)) {
+					copy(srcRecord, destPath);
+				}
+				files.incDone();
+			});
+		}
+
+		private void delete(@Nonnull Node node, @Nonnull Record destRecord) {
+			deletes.incTodo();
+			node.pending.incrementAndGet();
+			execute(transferThreader, "sync:delete:" + destRecord.getPath(), node, () -> {
+				remove(destRecord);
+				deletes.incDone();
+			});
+		}
+
+		private boolean matches(@Nonnull Record srcRecord, @Nonnull Record destRecord) throws IOException {
+			if (srcRecord.getSize() != destRecord.getSize()) {
+				return false;
+			}
+
+			switch (compare) {
+				case "time":
+					return destRecord.getTime() >= srcRecord.getTime();
+				case "hash":
+					String srcHash = srcFiler.getHash(srcRecord.getPath(), hash, hashBase);
+					return srcHash.equals(destFiler.getHash(destRecord.getPath(), hash, hashBase));
+				default:
+					return true;
+			}
+		}
+
+		private void copy(@Nonnull Record srcRecord, @Nonnull String destPath) throws IOException {
+			CountingInputStream counter = new CountingInputStream(srcFiler.readFile(srcRecord.getPath()));
+			InputStream measured = new MeasureInputStream(counter, bytes);
+			bytes.addTodo(srcRecord.getSize());
+
+			try (InputStream in = limiter != null ? new LimiterInputStream(measured, limiter) : measured;
+					OutputStream out = destFiler.writeFile(destPath)) {
+				IOUtils.copy(in, out, 65536);
+			} catch (IOException | RuntimeException e) {
+				// a retry starts the file over, so take back what this attempt counted
+				bytes.subTodo(srcRecord.getSize());
+				bytes.subDone(counter.getCount());
+				throw e;
+			}
+			copies.incDone();
+		}
+
+		private void remove(@Nonnull Record destRecord) throws IOException {
+			if (destRecord.isDir()) {
+				destFiler.deleteTree(destRecord.getPath());
+			} else {
+				destFiler.deleteFile(destRecord.getPath());
+			}
+		}
+
+		private void execute(@Nonnull Threader threader, @Nonnull String name, @Nonnull Node node,
+				@Nonnull Executable executable) {
+			AtomicInteger attempts = new AtomicInteger();
+			threader.execute(name, () -> {
+				try {
+					executable.execute();
+				} catch (Exception e) {
+					if (attempts.incrementAndGet() > retries) {
+						failed.incrementAndGet();
+					}
+					throw e;
+				}
+				finish(node);
+			});
+		}
+
+		private void finish(@Nonnull Node node) {
+			if (node.pending.decrementAndGet() == 0) {
+				checkpoint(node.relPath);
+				if (node.parent != null) {
+					finish(node.parent);
+				}
+			}
+		}
+
+		private synchronized void checkpoint(@Nonnull String relPath) {
+			if (checkpoint != null) {
+				try {
+					checkpoint.write(relPath);
+					checkpoint.newLine();
+					checkpoint.flush();
+				} catch (IOException e) {
+					log.warn("sync: failed to checkpoint: {}", relPath, e);
+				}
+			}
+		}
+
+		private void await() {
+			// dirs only ever submit transfers, so once the listing is done every transfer has been queued
+			listThreader.close();
+			transferThreader.close();
+		}
+
+		@Override
+		public void close() throws IOException {
+			listThreader.close(0);
+			transferThreader.close(0);
+			progress.close();
+			if (checkpoint != null) {
+				checkpoint.close();
+			}
+		}
+	}
+
+	@Nonnull
+	private static List<Record> sort(@Nonnull List<Record> records) {
+		List<Record> sorted = new ArrayList<>(records);
+		sorted.sort(ORDER);
+		return sorted;
+	}
+
+	@Nonnull
+	private static String destPath(@Nonnull Node node, @Nonnull String name) {
+		return RecordPath.from(node.destPath, name).getPath();
+	}
+
+	/**
+	 * A dir being synced, pending until its own listing, its transfers and all of its subdirs are done.
+	 */
+	private static class Node {
+		private final Node parent;
+		private final String relPath;
+		private final String srcPath;
+		private final String destPath;
+		private final boolean destExists;
+		private final AtomicInteger pending = new AtomicInteger(1);
+
+		private Node(@Nullable Node parent, @Nonnull String relPath, @Nonnull String srcPath, @Nonnull String destPath,
+				boolean destExists) {
+			this.parent = parent;
+			this.relPath = relPath;
+			this.srcPath = srcPath;
+			this.destPath = destPath;
+			this.destExists = destExists;
+		}
+	}
+}
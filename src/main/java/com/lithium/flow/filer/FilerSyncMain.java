@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.filer;
+
+import com.lithium.flow.config.Config;
+import com.lithium.flow.util.Main;
+
+import java.io.IOException;
+
+/**
+ * Syncs {@code dest.path} on the filer built from the {@code dest} config to match {@code src.path} on the filer
+ * built from the {@code src} config, with the {@link FilerSync} options.
+ *
+ * @author Matt Ayres
+ */
+public class FilerSyncMain {
+	public FilerSyncMain(Config config) throws IOException {
+		try (Filer srcFiler = Filers.buildFiler(config.prefix("src"));
+				Filer destFiler = Filers.buildFiler(config.prefix("dest"))) {
+			new FilerSync(srcFiler, destFiler, config).sync(config.getString("src.path"), config.getString("dest.path"));
+		}
+	}
+
+	public static void main(String[] args) {
+		Main.run();
+	}
+}
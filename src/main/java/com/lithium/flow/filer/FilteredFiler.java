@@ -22,6 +22,8 @@ import static java.util.stream.Collectors.toList;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -33,11 +35,14 @@ import javax.annotation.Nonnull;
  * @author Matt Ayres
  */
 public class FilteredFiler extends DecoratedFiler {
+	private final Filer delegate;
 	private final Predicate<Record> predicate;
 
 	public FilteredFiler(@Nonnull Filer delegate, @Nonnull Predicate<Record> predicate) {
 		super(delegate);
+		this.delegate = delegate;
 		bypassDelegateFind = true;
+		bypassDelegateDelete = true;
 
 		this.predicate = checkNotNull(predicate);
 	}
@@ -59,6 +64,16 @@ public class FilteredFiler extends DecoratedFiler {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		List<Record> records = new ArrayList<>();
+		for (Record record : super.getRecords(paths)) {
+			records.add(predicate.test(record) ? record : record.withSize(Record.NO_EXIST_SIZE));
+		}
+		return records;
+	}
+
 	@Override
 	@Nonnull
 	public InputStream readFile(@Nonnull String path) throws IOException {
@@ -70,6 +85,27 @@ public class FilteredFiler extends DecoratedFiler {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		Record record = super.getRecord(path);
+		if (predicate.test(record)) {
+			return super.readRange(path, offset, length);
+		} else {
+			throw new IOException("path is filtered: " + path);
+		}
+	}
+
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		Record record = super.getRecord(path);
+		if (predicate.test(record)) {
+			return super.readAt(path, position, b, off, len);
+		} else {
+			throw new IOException("path is filtered: " + path);
+		}
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
@@ -96,4 +132,17 @@ public class FilteredFiler extends DecoratedFiler {
 			super.deleteFile(path);
 		}
 	}
+
+	@Override
+	public void deleteFiles(@Nonnull Collection<String> paths) throws IOException {
+		List<String> pathList = new ArrayList<>(paths);
+		List<Record> records = super.getRecords(pathList);
+		List<String> deletePaths = new ArrayList<>();
+		for (int i = 0; i < pathList.size(); i++) {
+			if (predicate.test(records.get(i))) {
+				deletePaths.add(pathList.get(i));
+			}
+		}
+		delegate.deleteFiles(deletePaths);
+	}
 }
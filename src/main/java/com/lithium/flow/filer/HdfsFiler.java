@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.lithium.flow.io.DataIo;
 import com.lithium.flow.io.DecoratedOutputStream;
 
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,12 +33,15 @@ import java.util.List;
 import javax.annotation.Nonnull;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.security.AccessControlException;
 
+import com.google.common.io.ByteStreams;
+
 /**
  * @author Matt Ayres
  */
@@ -114,6 +118,41 @@ public class HdfsFiler implements Filer {
 		return fileSystem.open(new Path(path));
 	}
 
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		checkNotNull(path);
+
+		FSDataInputStream in = fileSystem.open(new Path(path));
+		try {
+			in.seek(offset);
+		} catch (EOFException e) {
+			// offset is past the end of the file, so the range is empty
+			length = 0;
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return ByteStreams.limit(in, length);
+	}
+
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		checkNotNull(path);
+
+		try (FSDataInputStream in = fileSystem.open(new Path(path))) {
+			int count = 0;
+			while (count < len) {
+				int read = in.read(position + count, b, off + count, len - count);
+				if (read < 0) {
+					break;
+				}
+				count += read;
+			}
+			return count == 0 && len > 0 ? -1 : count;
+		}
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
@@ -192,6 +231,13 @@ public class HdfsFiler implements Filer {
 		deleteFile(path);
 	}
 
+	@Override
+	public void deleteTree(@Nonnull String path) throws IOException {
+		checkNotNull(path);
+
+		fileSystem.delete(new Path(path), true);
+	}
+
 	@Override
 	public void renameFile(@Nonnull String oldPath, @Nonnull String newPath) throws IOException {
 		checkNotNull(oldPath);
@@ -18,8 +18,12 @@ package com.lithium.flow.filer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.lithium.flow.config.Config;
+import com.lithium.flow.config.Configs;
 import com.lithium.flow.io.AbstractDataIo;
 import com.lithium.flow.io.DataIo;
+import com.lithium.flow.io.MappedDataIo;
+import com.lithium.flow.util.Lazy;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -30,18 +34,54 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+
 /**
  * Local file system implementation of {@link Filer}.
+ * <p>
+ * {@link #openFile} goes through {@link RandomAccessFile} unless {@code local.mapped} is set, in which case files are
+ * memory-mapped with {@link MappedDataIo}: much faster for small random reads and writes, but tied to address space
+ * and map count limits.
  *
  * @author Matt Ayres
  */
 public class LocalFiler implements Filer {
+	private static final int STAT_THREADS = 8;
+
+	private final Lazy<ExecutorService> statService = new Lazy<>(LocalFiler::buildStatService);
+	private final boolean mapped;
+
+	public LocalFiler() {
+		this(Configs.empty());
+	}
+
+	public LocalFiler(@Nonnull Config config) {
+		mapped = checkNotNull(config).getBoolean("local.mapped", false);
+	}
+
 	@Override
 	@Nonnull
 	public URI getUri() {
@@ -55,16 +95,31 @@ public class LocalFiler implements Filer {
 
 		List<Record> records = new ArrayList<>();
 
-		File parentFile = new File(path);
-		File[] files = parentFile.listFiles();
-		if (files != null) {
-			for (File file : files) {
-				String name = file.getName();
-				long time = file.lastModified();
-				long size = file.length();
-				records.add(new Record(getUri(), RecordPath.from(parentFile.getCanonicalPath(), name), time,
-						size, file.isDirectory()));
+		Path parent = Paths.get(path);
+		DirectoryStream<Path> stream;
+		try {
+			stream = Files.newDirectoryStream(parent);
+		} catch (IOException e) {
+			return records;
+		}
+
+		URI uri = getUri();
+		try (DirectoryStream<Path> children = stream) {
+			String parentPath = parent.toRealPath().toString();
+			for (Path child : children) {
+				String name = child.getFileName().toString();
+				RecordPath recordPath = RecordPath.from(parentPath, name);
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class);
+					records.add(new Record(uri, recordPath, attributes.lastModifiedTime().toMillis(),
+							attributes.size(), attributes.isDirectory()));
+				} catch (IOException e) {
+					// dangling link or vanished file, reported the way File reports a missing file
+					records.add(new Record(uri, recordPath, 0, 0, false));
+				}
 			}
+		} catch (DirectoryIteratorException e) {
+			throw e.getCause();
 		}
 
 		return records;
@@ -83,6 +138,53 @@ public class LocalFiler implements Filer {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) {
+		checkNotNull(paths);
+
+		URI uri = getUri();
+		List<Record> records = new ArrayList<>(paths.size());
+		if (paths.size() <= 1) {
+			paths.forEach(path -> records.add(stat(uri, path)));
+			return records;
+		}
+
+		List<Future<Record>> futures = new ArrayList<>(paths.size());
+		for (String path : paths) {
+			futures.add(statService.get().submit(() -> stat(uri, path)));
+		}
+		futures.forEach(future -> records.add(Futures.getUnchecked(future)));
+		return records;
+	}
+
+	@Nonnull
+	private static Record stat(@Nonnull URI uri, @Nonnull String path) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+			return new Record(uri, RecordPath.from(path), attributes.lastModifiedTime().toMillis(),
+					attributes.size(), attributes.isDirectory());
+		} catch (IOException e) {
+			return new Record(uri, RecordPath.from(path), 0, Record.NO_EXIST_SIZE, false);
+		}
+	}
+
+	/**
+	 * Bounded pool for the stats of {@link #getRecords}, which block for a round trip each on network file systems.
+	 * Idle threads exit, so a filer that is never closed does not keep any.
+	 */
+	@Nonnull
+	private static ExecutorService buildStatService() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(STAT_THREADS, STAT_THREADS,
+				10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "LocalFiler-stat");
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	@Override
 	@Nonnull
 	public InputStream readFile(@Nonnull String path) throws IOException {
@@ -95,6 +197,36 @@ public class LocalFiler implements Filer {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		checkNotNull(path);
+		FileInputStream in = new FileInputStream(path);
+		try {
+			in.getChannel().position(offset);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return ByteStreams.limit(in, length);
+	}
+
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		checkNotNull(path);
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position() - off) < 0) {
+					break;
+				}
+			}
+
+			int count = buffer.position() - off;
+			return count == 0 && len > 0 ? -1 : count;
+		}
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
@@ -113,6 +245,10 @@ public class LocalFiler implements Filer {
 	@Nonnull
 	public DataIo openFile(@Nonnull String path, boolean write) throws IOException {
 		checkNotNull(path);
+		if (mapped) {
+			return new MappedDataIo(Paths.get(path), write);
+		}
+
 		RandomAccessFile file = new RandomAccessFile(path, write ? "rw" : "r");
 		return new AbstractDataIo(file, file) {
 			@Override
@@ -167,6 +303,34 @@ public class LocalFiler implements Filer {
 		deleteFile(path);
 	}
 
+	@Override
+	public void deleteTree(@Nonnull String path) throws IOException {
+		Path root = Paths.get(checkNotNull(path));
+		if (!Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+			return;
+		}
+
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			@Nonnull
+			public FileVisitResult visitFile(@Nonnull Path file, @Nonnull BasicFileAttributes attrs)
+					throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			@Nonnull
+			public FileVisitResult postVisitDirectory(@Nonnull Path dir, IOException exc) throws IOException {
+				if (exc != null) {
+					throw exc;
+				}
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
 	@Override
 	public void renameFile(@Nonnull String oldPath, @Nonnull String newPath) throws IOException {
 		File oldFile = new File(checkNotNull(oldPath));
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.filer;
+
+import com.lithium.flow.config.Config;
+import com.lithium.flow.util.Logs;
+import com.lithium.flow.util.Main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.slf4j.Logger;
+
+/**
+ * Benchmarks {@link LocalFiler#findRecords} against the previous {@link File#listFiles()} walk, which stats each
+ * file three times and canonicalizes the parent for every child.
+ * <p>
+ * Config: {@code path} to walk, {@code runs} (default 3) and {@code threads} (default 1).
+ *
+ * @author Matt Ayres
+ */
+public class LocalListingMain {
+	private static final Logger log = Logs.getLogger();
+
+	public LocalListingMain(Config config) throws IOException {
+		String path = config.getString("path");
+		int runs = config.getInt("runs", 3);
+		int threads = config.getInt("threads", 1);
+
+		Filer filer = new LocalFiler();
+		for (int run = 1; run <= runs; run++) {
+			long time = System.nanoTime();
+			long count = walkFiles(path);
+			long fileTime = System.nanoTime() - time;
+
+			time = System.nanoTime();
+			long nioCount = filer.findRecords(path, threads).count();
+			long nioTime = System.nanoTime() - time;
+
+			log.info("run {}: listFiles {} records in {}ms, nio {} records in {}ms", run,
+					count, fileTime / 1_000_000, nioCount, nioTime / 1_000_000);
+		}
+	}
+
+	private static long walkFiles(String path) throws IOException {
+		long count = 0;
+		Deque<File> dirs = new ArrayDeque<>();
+		dirs.add(new File(path));
+		while (!dirs.isEmpty()) {
+			File parentFile = dirs.removeLast();
+			File[] files = parentFile.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.lastModified();
+					file.length();
+					RecordPath.from(parentFile.getCanonicalPath(), file.getName());
+					if (file.isDirectory()) {
+						dirs.add(new File(parentFile.getCanonicalPath(), file.getName()));
+					}
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	public static void main(String[] args) {
+		Main.run();
+	}
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -98,6 +99,21 @@ public class LogFiler extends DecoratedFiler {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		if (enter) {
+			log.info("enter: getRecords({} paths)", paths.size());
+		}
+		try {
+			return delegate.getRecords(paths);
+		} finally {
+			if (exit) {
+				log.info("exit: getRecords({} paths)", paths.size());
+			}
+		}
+	}
+
 	@Override
 	@Nonnull
 	public Stream<Record> findRecords(@Nonnull String path, int threads) throws IOException {
@@ -143,6 +159,35 @@ public class LogFiler extends DecoratedFiler {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		if (enter) {
+			log.info("enter: readRange(\"{}\", {}, {})", path, offset, length);
+		}
+		try {
+			return delegate.readRange(path, offset, length);
+		} finally {
+			if (exit) {
+				log.info("exit: readRange(\"{}\", {}, {})", path, offset, length);
+			}
+		}
+	}
+
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		if (enter) {
+			log.info("enter: readAt(\"{}\", {}, {})", path, position, len);
+		}
+		try {
+			return delegate.readAt(path, position, b, off, len);
+		} finally {
+			if (exit) {
+				log.info("exit: readAt(\"{}\", {}, {})", path, position, len);
+			}
+		}
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
@@ -216,6 +261,34 @@ public class LogFiler extends DecoratedFiler {
 		}
 	}
 
+	@Override
+	public void deleteFiles(@Nonnull Collection<String> paths) throws IOException {
+		if (enter) {
+			log.info("enter: deleteFiles({} paths)", paths.size());
+		}
+		try {
+			delegate.deleteFiles(paths);
+		} finally {
+			if (exit) {
+				log.info("exit: deleteFiles({} paths)", paths.size());
+			}
+		}
+	}
+
+	@Override
+	public void deleteTree(@Nonnull String path) throws IOException {
+		if (enter) {
+			log.info("enter: deleteTree(\"{}\")", path);
+		}
+		try {
+			delegate.deleteTree(path);
+		} finally {
+			if (exit) {
+				log.info("exit: deleteTree(\"{}\")", path);
+			}
+		}
+	}
+
 	@Override
 	public void createDirs(@Nonnull String path) throws IOException {
 		if (enter) {
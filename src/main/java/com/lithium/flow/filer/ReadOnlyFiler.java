@@ -39,6 +39,7 @@ public class ReadOnlyFiler extends DecoratedFiler {
 	public ReadOnlyFiler(@Nonnull Filer delegate, @Nonnull Predicate<Filer> predicate) {
 		super(checkNotNull(delegate));
 		this.predicate = checkNotNull(predicate);
+		bypassDelegateDelete = true;
 	}
 
 	@Override
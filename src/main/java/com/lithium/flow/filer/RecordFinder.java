@@ -18,15 +18,22 @@ package com.lithium.flow.filer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.lithium.flow.util.IndefiniteSpliterator;
 import com.lithium.flow.util.Logs;
-import com.lithium.flow.util.Sleep;
-import com.lithium.flow.util.Threader;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -36,62 +43,93 @@ import javax.annotation.Nonnull;
 import org.slf4j.Logger;
 
 /**
+ * Walks the tree below a path, listing each directory once.
+ * <p>
+ * Single threaded, the walk runs lazily on the consuming thread, depth first, so it holds only the pending
+ * directory paths and the current listing. {@link #trySplit()} hands the shallowest pending directories to a new
+ * finder, which lets {@code parallel()} streams spread subtrees across fork/join workers.
+ * <p>
+ * With more threads, a {@link ForkJoinPool} lists directories ahead of the consumer, one {@link CountedCompleter}
+ * per directory, and feeds records through a bounded queue. The completer tree signals the end of the walk once
+ * every directory has been listed.
+ * <p>
+ * Directories that fail to list are logged and skipped, and counted in the errors passed to
+ * {@link #stream(Filer, String, int, AtomicInteger)} for callers that need to know the walk was complete.
+ *
  * @author Matt Ayres
  */
-public class RecordFinder extends IndefiniteSpliterator<Record> {
+public class RecordFinder implements Spliterator<Record> {
 	private static final Logger log = Logs.getLogger();
+	private static final int MAX_SPLIT_RECORDS = 10000;
+	private static final Record END = Record.noFile(URI.create("end:/"), "");
 
 	private final Filer filer;
-	private final int threads;
-	private final Threader threader;
-	private final BlockingQueue<Record> queue;
+	private final Deque<String> dirs;
+	private final Deque<Record> records = new ArrayDeque<>();
+	private final AtomicInteger errors;
+	private long estimate;
 
-	private RecordFinder(@Nonnull Filer filer, @Nonnull String path, int threads, int capacity) {
+	private RecordFinder(@Nonnull Filer filer, @Nonnull Collection<String> dirs, long estimate,
+			@Nonnull AtomicInteger errors) {
 		this.filer = checkNotNull(filer);
-		this.threads = threads;
-		queue = new LinkedBlockingQueue<>(capacity);
-		threader = new Threader(threads);
-		findRecords(path);
+		this.dirs = new ArrayDeque<>(dirs);
+		this.estimate = estimate;
+		this.errors = errors;
 	}
 
-	private void findRecords(@Nonnull String path) {
-		checkNotNull(path);
-
-		Runnable runnable = () -> {
-			try {
-				for (Record record : filer.listRecords(path)) {
-					Sleep.until(() -> queue.offer(record));
-					if (record.isDir()) {
-						findRecords(record.getPath());
-					}
-				}
-			} catch (IOException e) {
-				log.warn("failed to find records: " + path, e);
+	@Override
+	public boolean tryAdvance(@Nonnull Consumer<? super Record> action) {
+		while (records.isEmpty()) {
+			if (dirs.isEmpty()) {
+				return false;
 			}
-		};
+			list(dirs.removeLast());
+		}
+
+		action.accept(records.removeFirst());
+		return true;
+	}
 
-		if (threader.getRemaining() < threads) {
-			threader.execute(path, runnable::run);
-		} else {
-			runnable.run();
+	@Override
+	public Spliterator<Record> trySplit() {
+		while (dirs.size() == 1 && records.size() < MAX_SPLIT_RECORDS) {
+			list(dirs.removeLast());
 		}
+
+		if (dirs.size() < 2) {
+			return null;
+		}
+
+		Deque<String> splitDirs = new ArrayDeque<>();
+		for (int i = dirs.size() / 2; i > 0; i--) {
+			splitDirs.add(dirs.removeFirst());
+		}
+		estimate >>>= 1;
+		return new RecordFinder(filer, splitDirs, estimate, errors);
 	}
 
 	@Override
-	public boolean tryAdvance(Consumer<? super Record> action) {
-		while (threader.getRemaining() > 0 || queue.size() > 0) {
-			try {
-				Record record = queue.poll(10, TimeUnit.MILLISECONDS);
-				if (record != null) {
-					action.accept(record);
-					return true;
+	public long estimateSize() {
+		return estimate;
+	}
+
+	@Override
+	public int characteristics() {
+		return IMMUTABLE | NONNULL;
+	}
+
+	private void list(@Nonnull String path) {
+		try {
+			for (Record record : filer.listRecords(path)) {
+				records.add(record);
+				if (record.isDir()) {
+					dirs.add(record.getPath());
 				}
-			} catch (InterruptedException e) {
-				break;
 			}
+		} catch (IOException e) {
+			errors.incrementAndGet();
+			log.warn("failed to find records: " + path, e);
 		}
-		threader.close();
-		return false;
 	}
 
 	@Nonnull
@@ -101,6 +139,131 @@ public class RecordFinder extends IndefiniteSpliterator<Record> {
 
 	@Nonnull
 	public static Stream<Record> stream(@Nonnull Filer filer, @Nonnull String path, int threads, int capacity) {
-		return StreamSupport.stream(new RecordFinder(filer, path, threads, capacity), false);
+		return stream(filer, path, threads, capacity, new AtomicInteger());
+	}
+
+	@Nonnull
+	public static Stream<Record> stream(@Nonnull Filer filer, @Nonnull String path, int threads,
+			@Nonnull AtomicInteger errors) {
+		return stream(filer, path, threads, 100000, errors);
+	}
+
+	@Nonnull
+	public static Stream<Record> stream(@Nonnull Filer filer, @Nonnull String path, int threads, int capacity,
+			@Nonnull AtomicInteger errors) {
+		checkNotNull(filer);
+		checkNotNull(path);
+		checkNotNull(errors);
+
+		if (threads <= 1) {
+			return StreamSupport.stream(new RecordFinder(filer, Collections.singleton(path), Long.MAX_VALUE, errors),
+					false);
+		}
+
+		Walker walker = new Walker(filer, path, threads, capacity, errors);
+		return StreamSupport.stream(walker, false).onClose(walker::close);
+	}
+
+	private static class Walker extends Spliterators.AbstractSpliterator<Record> {
+		private final Filer filer;
+		private final String basePath;
+		private final BlockingQueue<Record> queue;
+		private final ForkJoinPool pool;
+		private final AtomicInteger errors;
+		private volatile boolean closed;
+
+		private Walker(@Nonnull Filer filer, @Nonnull String path, int threads, int capacity,
+				@Nonnull AtomicInteger errors) {
+			super(Long.MAX_VALUE, IMMUTABLE | NONNULL);
+			this.filer = filer;
+			this.errors = errors;
+			basePath = path;
+			queue = new LinkedBlockingQueue<>(capacity);
+			pool = new ForkJoinPool(threads);
+			pool.execute(new ListTask(null, path));
+		}
+
+		@Override
+		public boolean tryAdvance(@Nonnull Consumer<? super Record> action) {
+			if (closed) {
+				return false;
+			}
+
+			try {
+				Record record = queue.take();
+				if (record != END) {
+					action.accept(record);
+					return true;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			close();
+			return false;
+		}
+
+		private void put(@Nonnull Record record) {
+			try {
+				while (!closed && !queue.offer(record, 1, TimeUnit.SECONDS)) {
+					// wait for the consumer to catch up
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void close() {
+			closed = true;
+			pool.shutdownNow();
+		}
+
+		private class ListTask extends CountedCompleter<Void> {
+			private final String path;
+
+			private ListTask(CountedCompleter<?> completer, @Nonnull String path) {
+				super(completer);
+				this.path = path;
+			}
+
+			@Override
+			public void compute() {
+				try {
+					for (Record record : filer.listRecords(path)) {
+						if (closed) {
+							break;
+						}
+						put(record);
+						if (record.isDir()) {
+							addToPendingCount(1);
+							new ListTask(this, record.getPath()).fork();
+						}
+					}
+				} catch (IOException e) {
+					if (!closed) {
+						errors.incrementAndGet();
+						log.warn("failed to find records: " + path, e);
+					}
+				}
+				tryComplete();
+			}
+
+			@Override
+			public void onCompletion(CountedCompleter<?> caller) {
+				if (getCompleter() == null) {
+					put(END);
+				}
+			}
+
+			@Override
+			public boolean onExceptionalCompletion(Throwable throwable, CountedCompleter<?> caller) {
+				if (getCompleter() == null) {
+					errors.incrementAndGet();
+					log.warn("failed to find records: " + basePath, throwable);
+					put(END);
+				}
+				return true;
+			}
+		}
 	}
 }
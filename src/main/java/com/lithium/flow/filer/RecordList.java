@@ -0,0 +1,321 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.filer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.Collector;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Compact list of records for huge listings.
+ * <p>
+ * Each distinct uri and folder pair is stored once, names are packed as UTF-8 into shared byte chunks, and times,
+ * sizes and dir flags live in primitive arrays, so a record takes about 28 bytes plus its name instead of around
+ * 200 bytes as a {@link Record} with its {@link RecordPath} and three strings. Records are only materialized by
+ * {@link #get}, so callers that hold on to them lose the savings for those records. {@link #set} packs the new
+ * name without reclaiming the old one, while {@link #sort} only reorders the entries.
+ * <p>
+ * Not thread-safe for changes. Serializes in the {@link RecordWriter} form, which keeps listings sent over RMI
+ * compact as well.
+ *
+ * @author Matt Ayres
+ */
+public class RecordList extends AbstractList<Record> implements RandomAccess, Serializable {
+	private static final long serialVersionUID = 4126073316725491520L;
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	private final Map<Folder, Integer> folderIds = new HashMap<>();
+	private final List<Folder> folders = new ArrayList<>();
+	private final List<byte[]> chunks = new ArrayList<>();
+	private final BitSet dirs = new BitSet();
+	private int[] folderIndexes;
+	private long[] names;
+	private long[] times;
+	private long[] sizes;
+	private int chunkOffset;
+	private int size;
+
+	public RecordList() {
+		this(16);
+	}
+
+	public RecordList(int capacity) {
+		folderIndexes = new int[capacity];
+		names = new long[capacity];
+		times = new long[capacity];
+		sizes = new long[capacity];
+	}
+
+	@Nonnull
+	public static RecordList of(@Nonnull Collection<Record> records) {
+		checkNotNull(records);
+		if (records instanceof RecordList) {
+			return (RecordList) records;
+		}
+
+		RecordList list = new RecordList(Math.max(1, records.size()));
+		list.addAll(records);
+		return list;
+	}
+
+	@Nonnull
+	public static Collector<Record, ?, RecordList> collector() {
+		return Collector.of(RecordList::new, RecordList::add, (left, right) -> {
+			left.addAll(right);
+			return left;
+		});
+	}
+
+	@Override
+	public boolean add(@Nonnull Record record) {
+		checkNotNull(record);
+
+		if (size == times.length) {
+			int capacity = Math.max(16, size + (size >> 1));
+			folderIndexes = Arrays.copyOf(folderIndexes, capacity);
+			names = Arrays.copyOf(names, capacity);
+			times = Arrays.copyOf(times, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+		}
+
+		put(size, record);
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	@Nonnull
+	public Record set(int index, @Nonnull Record record) {
+		checkNotNull(record);
+		Record previous = get(index);
+		put(index, record);
+		return previous;
+	}
+
+	/**
+	 * Sorts by materializing the records once and then reordering the entries, so names are not packed again.
+	 */
+	@Override
+	public void sort(@Nullable Comparator<? super Record> comparator) {
+		Record[] records = toArray(new Record[size]);
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		if (comparator == null) {
+			Arrays.sort(order, (i, j) -> ((Comparable<Record>) records[i]).compareTo(records[j]));
+		} else {
+			Arrays.sort(order, (i, j) -> comparator.compare(records[i], records[j]));
+		}
+
+		int[] sortedFolderIndexes = new int[folderIndexes.length];
+		long[] sortedNames = new long[names.length];
+		long[] sortedTimes = new long[times.length];
+		long[] sortedSizes = new long[sizes.length];
+		BitSet sortedDirs = new BitSet();
+		for (int i = 0; i < size; i++) {
+			int j = order[i];
+			sortedFolderIndexes[i] = folderIndexes[j];
+			sortedNames[i] = names[j];
+			sortedTimes[i] = times[j];
+			sortedSizes[i] = sizes[j];
+			sortedDirs.set(i, dirs.get(j));
+		}
+
+		folderIndexes = sortedFolderIndexes;
+		names = sortedNames;
+		times = sortedTimes;
+		sizes = sortedSizes;
+		dirs.clear();
+		dirs.or(sortedDirs);
+		modCount++;
+	}
+
+	private void put(int index, @Nonnull Record record) {
+		String folder = record.getFolder();
+		String name = record.getName();
+		if (!record.getPath().equals(folder + "/" + name)) {
+			// paths without a leading folder, like "name", are kept whole and parsed again when read
+			folder = null;
+			name = record.getPath();
+		}
+
+		Folder key = new Folder(record.getUri(), folder);
+		Integer folderIndex = folderIds.get(key);
+		if (folderIndex == null) {
+			folderIndex = folders.size();
+			folderIds.put(key, folderIndex);
+			folders.add(key);
+		}
+
+		folderIndexes[index] = folderIndex;
+		names[index] = putName(name);
+		times[index] = record.getTime();
+		sizes[index] = record.getSize();
+		dirs.set(index, record.isDir());
+	}
+
+	@Override
+	@Nonnull
+	public Record get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+
+		Folder folder = folders.get(folderIndexes[index]);
+		String name = getName(names[index]);
+		RecordPath path = folder.path == null ? RecordPath.from(name) : RecordPath.from(folder.path, name);
+		return new Record(folder.uri, path, times[index], sizes[index], dirs.get(index));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Packs the name into the last chunk as a varint length and its UTF-8 bytes, and returns its position as the
+	 * chunk index in the high int and the offset in the low int. Chunks start small and double up to the chunk size,
+	 * so short lists stay small too.
+	 */
+	private long putName(@Nonnull String name) {
+		byte[] bytes = name.getBytes(UTF_8);
+		int length = bytes.length + 5;
+
+		byte[] chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+		if (chunk == null || chunkOffset + length > chunk.length) {
+			if (chunk != null && chunkOffset + length <= CHUNK_SIZE) {
+				chunk = Arrays.copyOf(chunk, Math.min(CHUNK_SIZE, Math.max(chunk.length * 2, chunkOffset + length)));
+				chunks.set(chunks.size() - 1, chunk);
+			} else {
+				chunk = new byte[Math.max(length, chunk == null ? 256 : CHUNK_SIZE)];
+				chunks.add(chunk);
+				chunkOffset = 0;
+			}
+		}
+
+		long position = ((long) (chunks.size() - 1) << 32) | chunkOffset;
+
+		int value = bytes.length;
+		while ((value & ~0x7f) != 0) {
+			chunk[chunkOffset++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		chunk[chunkOffset++] = (byte) value;
+
+		System.arraycopy(bytes, 0, chunk, chunkOffset, bytes.length);
+		chunkOffset += bytes.length;
+		return position;
+	}
+
+	@Nonnull
+	private String getName(long position) {
+		byte[] chunk = chunks.get((int) (position >>> 32));
+		int offset = (int) position;
+
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk[offset++];
+			length |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return new String(chunk, offset, length, UTF_8);
+	}
+
+	@Nonnull
+	private Object writeReplace() throws ObjectStreamException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (RecordWriter writer = new RecordWriter(baos)) {
+			writer.writeAll(iterator());
+		} catch (IOException e) {
+			throw new InvalidObjectException(e.getMessage());
+		}
+		return new Form(baos.toByteArray());
+	}
+
+	private static class Form implements Serializable {
+		private static final long serialVersionUID = -2253418947000367811L;
+
+		private final byte[] bytes;
+
+		private Form(@Nonnull byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Nonnull
+		private Object readResolve() throws ObjectStreamException {
+			try (RecordReader reader = new RecordReader(new ByteArrayInputStream(bytes))) {
+				return reader.readAll();
+			} catch (IOException e) {
+				throw new InvalidObjectException(e.getMessage());
+			}
+		}
+	}
+
+	private static class Folder {
+		private final URI uri;
+		private final String path;
+
+		private Folder(@Nonnull URI uri, @Nullable String path) {
+			this.uri = uri;
+			this.path = path;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Folder that = (Folder) o;
+			return uri.equals(that.uri) && Objects.equals(path, that.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(uri, path);
+		}
+	}
+}
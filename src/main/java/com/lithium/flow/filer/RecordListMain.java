@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.filer;
+
+import com.lithium.flow.config.Config;
+import com.lithium.flow.util.Logs;
+import com.lithium.flow.util.Main;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+
+/**
+ * Benchmarks the heap taken by a listing held as a {@link RecordList} against the same listing held as separate
+ * {@link Record} objects, and the time to build and iterate each.
+ * <p>
+ * Config: {@code count} records (default 1000000) spread over {@code dirs} dirs (default 1000) and {@code runs}
+ * (default 3). Run with a heap large enough for the plain list.
+ *
+ * @author Matt Ayres
+ */
+public class RecordListMain {
+	private static final Logger log = Logs.getLogger();
+
+	public RecordListMain(Config config) {
+		int count = config.getInt("count", 1_000_000);
+		int dirs = config.getInt("dirs", 1000);
+		int runs = config.getInt("runs", 3);
+
+		for (int run = 1; run <= runs; run++) {
+			measure(run, "records", () -> buildRecords(count, dirs, new ArrayList<>(count)));
+			measure(run, "recordList", () -> buildRecords(count, dirs, new RecordList(count)));
+		}
+	}
+
+	private static void measure(int run, String name, Supplier<List<Record>> supplier) {
+		long baseMemory = usedMemory();
+		long time = System.nanoTime();
+		List<Record> records = supplier.get();
+		long buildTime = System.nanoTime() - time;
+		long memory = usedMemory() - baseMemory;
+
+		time = System.nanoTime();
+		long bytes = 0;
+		for (Record record : records) {
+			bytes += record.getSize();
+		}
+		long iterateTime = System.nanoTime() - time;
+
+		log.info("run {}: {} {} records in {}MB ({} bytes each), built in {}ms, iterated in {}ms ({})", run, name,
+				records.size(), memory / 1024 / 1024, memory / Math.max(1, records.size()), buildTime / 1_000_000,
+				iterateTime / 1_000_000, bytes);
+	}
+
+	private static List<Record> buildRecords(int count, int dirs, List<Record> records) {
+		URI uri = URI.create("s3://bucket");
+		int perDir = Math.max(1, count / dirs);
+		for (int i = 0; i < count; i++) {
+			// a listing makes a new folder string for every record, as filers parse it out of each path
+			String folder = "/data/year=2024/month=" + (i / perDir % 12) + "/dir-" + (i / perDir);
+			String name = "part-" + i + "-c000.snappy.parquet";
+			records.add(new Record(uri, RecordPath.from(folder, name), 1_700_000_000_000L + i, 1024L * i, false));
+		}
+		return records;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public static void main(String[] args) {
+		Main.run();
+	}
+}
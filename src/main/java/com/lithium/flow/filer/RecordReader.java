@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.filer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.lithium.flow.compress.Coder;
+import com.lithium.flow.compress.Coders;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+
+/**
+ * Reads records written by {@link RecordWriter}.
+ *
+ * @author Matt Ayres
+ */
+public class RecordReader implements Closeable {
+	private final InputStream in;
+	private final List<URI> uris = new ArrayList<>();
+	private byte[] lastPath = new byte[0];
+	private int lastLength;
+	private long lastTime;
+	private long count;
+	private boolean finished;
+
+	public RecordReader(@Nonnull InputStream in) throws IOException {
+		this.in = new BufferedInputStream(checkNotNull(in), 65536);
+		int magic = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+		if (magic != RecordWriter.MAGIC) {
+			throw new IOException("not a record stream: " + Integer.toHexString(magic));
+		}
+		int version = readByte();
+		if (version != RecordWriter.VERSION) {
+			throw new IOException("unsupported record stream version: " + version);
+		}
+	}
+
+	public RecordReader(@Nonnull InputStream in, @Nonnull Coder coder) throws IOException {
+		this(checkNotNull(coder).wrapIn(checkNotNull(in)));
+	}
+
+	/**
+	 * Opens a reader for a file in the filer, decompressed by the coder for the path's extension.
+	 */
+	@Nonnull
+	public static RecordReader open(@Nonnull Filer filer, @Nonnull String path) throws IOException {
+		checkNotNull(filer);
+		checkNotNull(path);
+		return new RecordReader(filer.readFile(path), Coders.getCoder(path));
+	}
+
+	/**
+	 * Returns the next record, or null after the last one.
+	 *
+	 * @throws EOFException if the stream ends before its trailer
+	 */
+	@Nullable
+	public Record read() throws IOException {
+		if (finished) {
+			return null;
+		}
+
+		int flags = readByte();
+		if ((flags & RecordWriter.FLAG_END) != 0) {
+			finished = true;
+			long expected = readVarLong();
+			if (expected != count) {
+				throw new IOException("record count mismatch: " + count + " read, " + expected + " expected");
+			}
+			return null;
+		}
+
+		int uriIndex = (int) readVarLong();
+		if (uriIndex == uris.size()) {
+			byte[] bytes = new byte[(int) readVarLong()];
+			readFully(bytes, 0, bytes.length);
+			uris.add(URI.create(new String(bytes, UTF_8)));
+		} else if (uriIndex > uris.size()) {
+			throw new IOException("bad uri index: " + uriIndex);
+		}
+
+		int shared = (int) readVarLong();
+		if (shared > lastLength) {
+			throw new IOException("bad shared path length: " + shared);
+		}
+		int length = shared + (int) readVarLong();
+		if (lastPath.length < length) {
+			lastPath = Arrays.copyOf(lastPath, length * 2);
+		}
+		readFully(lastPath, shared, length - shared);
+		lastLength = length;
+		String path = new String(lastPath, 0, lastLength, UTF_8);
+
+		lastTime += unzigzag(readVarLong());
+		boolean missing = (flags & RecordWriter.FLAG_MISSING) != 0;
+		long size = missing ? Record.NO_EXIST_SIZE : readVarLong();
+
+		count++;
+		return new Record(uris.get(uriIndex), RecordPath.from(path), lastTime, size,
+				(flags & RecordWriter.FLAG_DIR) != 0);
+	}
+
+	@Nonnull
+	public Stream<Record> stream() {
+		return Streams.stream(new AbstractIterator<Record>() {
+			@Override
+			@Nullable
+			protected Record computeNext() {
+				try {
+					Record record = read();
+					return record != null ? record : endOfData();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	@Nonnull
+	public RecordList readAll() throws IOException {
+		RecordList records = new RecordList();
+		Record record;
+		while ((record = read()) != null) {
+			records.add(record);
+		}
+		return records;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private void readFully(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			int count = in.read(bytes, offset + read, length - read);
+			if (count == -1) {
+				throw new EOFException("truncated record stream");
+			}
+			read += count;
+		}
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed varint");
+	}
+
+	private int readByte() throws IOException {
+		int b = in.read();
+		if (b == -1) {
+			throw new EOFException("truncated record stream");
+		}
+		return b;
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.filer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.lithium.flow.compress.Coder;
+import com.lithium.flow.compress.Coders;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Writes a stream of records in a compact binary form for {@link RecordReader}.
+ * <p>
+ * Each record has a flags byte, then a varint index into a dictionary of uris that is built up as new uris are
+ * written. The path is encoded as the number of UTF-8 bytes shared with the previous path and the remaining
+ * bytes, which suits sorted and depth-first listings. The time is written as a zigzag varint delta from the previous
+ * record and the size as a varint. A trailer with the record count lets readers detect truncated streams.
+ *
+ * @author Matt Ayres
+ */
+public class RecordWriter implements Closeable {
+	static final int MAGIC = 0x46524543;
+	static final int VERSION = 1;
+	static final int FLAG_DIR = 1;
+	static final int FLAG_MISSING = 2;
+	static final int FLAG_END = 0x80;
+
+	private final OutputStream out;
+	private final Map<URI, Integer> uris = new HashMap<>();
+	private byte[] lastPath = new byte[0];
+	private long lastTime;
+	private long count;
+	private boolean finished;
+
+	public RecordWriter(@Nonnull OutputStream out) throws IOException {
+		this.out = new BufferedOutputStream(checkNotNull(out), 65536);
+		writeInt(MAGIC);
+		this.out.write(VERSION);
+	}
+
+	public RecordWriter(@Nonnull OutputStream out, @Nonnull Coder coder) throws IOException {
+		this(checkNotNull(coder).wrapOut(checkNotNull(out)));
+	}
+
+	/**
+	 * Opens a writer for a file in the filer, compressed by the coder for the path's extension.
+	 */
+	@Nonnull
+	public static RecordWriter open(@Nonnull Filer filer, @Nonnull String path) throws IOException {
+		checkNotNull(filer);
+		checkNotNull(path);
+		return new RecordWriter(filer.writeFile(path), Coders.getCoder(path));
+	}
+
+	public void write(@Nonnull Record record) throws IOException {
+		checkNotNull(record);
+		checkState(!finished, "already finished");
+
+		int flags = (record.isDir() ? FLAG_DIR : 0) | (record.exists() ? 0 : FLAG_MISSING);
+		out.write(flags);
+
+		Integer uriIndex = uris.get(record.getUri());
+		if (uriIndex == null) {
+			writeVarLong(uris.size());
+			writeBytes(record.getUri().toString().getBytes(UTF_8), 0);
+			uris.put(record.getUri(), uris.size());
+		} else {
+			writeVarLong(uriIndex);
+		}
+
+		byte[] path = record.getPath().getBytes(UTF_8);
+		int shared = 0;
+		int max = Math.min(path.length, lastPath.length);
+		while (shared < max && path[shared] == lastPath[shared]) {
+			shared++;
+		}
+		writeVarLong(shared);
+		writeBytes(path, shared);
+		lastPath = path;
+
+		writeVarLong(zigzag(record.getTime() - lastTime));
+		lastTime = record.getTime();
+		if (record.exists()) {
+			writeVarLong(record.getSize());
+		}
+
+		count++;
+	}
+
+	/**
+	 * Writes every record from the iterator, and returns how many were written.
+	 */
+	public long writeAll(@Nonnull Iterator<Record> records) throws IOException {
+		checkNotNull(records);
+		long written = 0;
+		while (records.hasNext()) {
+			write(records.next());
+			written++;
+		}
+		return written;
+	}
+
+	public long writeAll(@Nonnull Stream<Record> records) throws IOException {
+		checkNotNull(records);
+		return writeAll(records.iterator());
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Writes the trailer and flushes, leaving the underlying stream open.
+	 */
+	public void finish() throws IOException {
+		if (!finished) {
+			finished = true;
+			out.write(FLAG_END);
+			writeVarLong(count);
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeBytes(@Nonnull byte[] bytes, int offset) throws IOException {
+		writeVarLong(bytes.length - offset);
+		out.write(bytes, offset, bytes.length - offset);
+	}
+
+	private void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private void writeInt(int value) throws IOException {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -60,6 +61,20 @@ public class RenameFiler implements Filer {
 		return adjustRecord(delegate.getRecord(path));
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		List<String> replacedPaths = new ArrayList<>();
+		for (String path : paths) {
+			replacedPaths.add(toReplacer.replace(path));
+		}
+		List<Record> records = new ArrayList<>();
+		for (Record record : delegate.getRecords(replacedPaths)) {
+			records.add(adjustRecord(record));
+		}
+		return records;
+	}
+
 	@Override
 	@Nonnull
 	public List<Record> listRecords(@Nonnull String path) throws IOException {
@@ -89,6 +104,19 @@ public class RenameFiler implements Filer {
 		return delegate.readFile(path);
 	}
 
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		path = toReplacer.replace(path);
+		return delegate.readRange(path, offset, length);
+	}
+
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		path = toReplacer.replace(path);
+		return delegate.readAt(path, position, b, off, len);
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
@@ -122,6 +150,15 @@ public class RenameFiler implements Filer {
 		delegate.deleteFile(path);
 	}
 
+	@Override
+	public void deleteFiles(@Nonnull Collection<String> paths) throws IOException {
+		List<String> replacedPaths = new ArrayList<>();
+		for (String path : paths) {
+			replacedPaths.add(toReplacer.replace(path));
+		}
+		delegate.deleteFiles(replacedPaths);
+	}
+
 	@Override
 	public void createDirs(@Nonnull String path) throws IOException {
 		delegate.createDirs(path);
@@ -133,6 +170,12 @@ public class RenameFiler implements Filer {
 		delegate.deleteDir(path);
 	}
 
+	@Override
+	public void deleteTree(@Nonnull String path) throws IOException {
+		path = toReplacer.replace(path);
+		delegate.deleteTree(path);
+	}
+
 	@Override
 	public void renameFile(@Nonnull String oldPath, @Nonnull String newPath) throws IOException {
 		oldPath = toReplacer.replace(oldPath);
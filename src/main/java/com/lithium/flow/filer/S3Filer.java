@@ -23,37 +23,61 @@ import com.lithium.flow.access.Prompt.Response;
 import com.lithium.flow.access.Prompt.Type;
 import com.lithium.flow.config.Config;
 import com.lithium.flow.config.Configs;
+import com.lithium.flow.io.BufferPool;
+import com.lithium.flow.io.ByteBufferInputStream;
 import com.lithium.flow.io.DataIo;
 import com.lithium.flow.streams.CounterInputStream;
+import com.lithium.flow.util.AdaptiveRateLimiter;
+import com.lithium.flow.util.IndefiniteSpliterator;
 import com.lithium.flow.util.Lazy;
 import com.lithium.flow.util.LimiterInputStream;
+import com.lithium.flow.util.Logs;
 import com.lithium.flow.util.Needle;
 import com.lithium.flow.util.Threader;
 import com.lithium.flow.util.UncheckedException;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.SdkBaseException;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
@@ -63,12 +87,17 @@ import com.amazonaws.auth.InstanceProfileCredentialsProvider;
 import com.amazonaws.auth.STSAssumeRoleSessionCredentialsProvider;
 import com.amazonaws.auth.profile.ProfileCredentialsProvider;
 import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import com.amazonaws.services.s3.model.ListObjectsV2Result;
@@ -83,22 +112,37 @@ import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClientBuilder;
 import com.amazonaws.util.IOUtils;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.RateLimiter;
 
 /**
  * @author Matt Ayres
  */
 public class S3Filer implements Filer {
+	private static final Logger log = Logs.getLogger();
+	private static final int DELETE_BATCH = 1000;
+	private static final int RECORDS_PER_PAGE = 10;
+	private static final ThreadLocal<Attempts> currentAttempts = new ThreadLocal<>();
+	private static final RequestHandler2 THROTTLE_HANDLER = new ThrottleHandler();
+
 	private final AmazonS3 internalS3;
 	private final URI uri;
 	private final String bucket;
 	private final long partSize;
 	private final long maxDrainBytes;
+	private final long parallelReadThreshold;
+	private final long readPartSize;
+	private final int readAhead;
 	private final boolean bypassCreateDirs;
 	private final StorageClass storageClass;
-	private final RateLimiter limiter;
+	private final Map<String, AdaptiveRateLimiter> limiters = new ConcurrentHashMap<>();
+	private final Supplier<AdaptiveRateLimiter> limiterSupplier;
+	private final int ratePrefixDepth;
 	private final RateLimiter bitLimiter;
 	private final Lazy<Threader> threader;
+	private final Lazy<BufferPool> bufferPool;
 
 	public S3Filer(@Nonnull Config config, @Nonnull Access access) {
 		this(config, buildS3(config, access));
@@ -119,14 +163,28 @@ public class S3Filer implements Filer {
 		maxDrainBytes = config.getInt("s3.maxDrainBytes", 128 * 1024);
 		bypassCreateDirs = config.getBoolean("s3.bypassCreateDirs", false);
 		storageClass = StorageClass.fromValue(config.getString("s3.storageClass", "STANDARD"));
-		limiter = RateLimiter.create(config.getDouble("s3.rateLimit", 3400));
+		double rate = config.getDouble("s3.rateLimit", 3400);
+		double minRate = config.getDouble("s3.minRateLimit", rate / 10);
+		// s3.rateLimit stays a ceiling unless s3.maxRateLimit raises it, so adaptation only backs off by default
+		double maxRate = config.getDouble("s3.maxRateLimit", rate);
+		double rateIncrease = config.getDouble("s3.rateIncrease", 100);
+		double rateDecrease = config.getDouble("s3.rateDecrease", 0.5);
+		long rateCooldown = config.getTime("s3.rateCooldown", "1s");
+		limiterSupplier = () -> new AdaptiveRateLimiter(rate, minRate, maxRate,
+				rateIncrease, rateDecrease, rateCooldown);
+		ratePrefixDepth = config.getInt("s3.ratePrefixDepth", 0);
 		bitLimiter = RateLimiter.create(config.getDouble("s3.bitLimit", Double.MAX_VALUE));
 
 		int threads = config.getInt("s3.threads", 8);
 		int maxQueued = config.getInt("s3.maxQueued", threads);
+		parallelReadThreshold = config.getLong("s3.parallelReadThreshold", -1);
+		readPartSize = config.getLong("s3.readPartSize", 8 * 1024 * 1024);
+		readAhead = config.getInt("s3.readAhead", threads);
 		threader = new Lazy<>(() -> new Threader(threads).setMaxQueued(maxQueued));
-	}
 
+		long bufferMemory = Math.max(partSize, config.getLong("s3.bufferMemory", 256 * 1024 * 1024));
+		bufferPool = new Lazy<>(() -> new BufferPool((int) partSize, bufferMemory));
+	}
 
 	@Override
 	@Nonnull
@@ -146,7 +204,7 @@ public class S3Filer implements Filer {
 
 		ListObjectsV2Result listing;
 		do {
-			listing = get(s3 -> s3.listObjectsV2(request));
+			listing = get(request.getPrefix(), s3 -> s3.listObjectsV2(request));
 
 			for (String dir : listing.getCommonPrefixes()) {
 				if (dir.startsWith(prefix)) {
@@ -172,11 +230,163 @@ public class S3Filer implements Filer {
 		return records;
 	}
 
+	@Override
+	@Nonnull
+	public Stream<Record> findRecords(@Nonnull String path, int threads) throws IOException {
+		String prefix = path.isEmpty() || path.equals("/") ? "" : keyForPath(path) + "/";
+
+		// split the key space on the top level prefixes so each partition is listed in parallel
+		List<String> bounds = new ArrayList<>();
+		if (threads > 1) {
+			List<String> dirs = listPrefixes(prefix);
+			for (int i = 1; i < Math.min(threads, dirs.size()); i++) {
+				bounds.add(dirs.get(i * dirs.size() / threads));
+			}
+		}
+
+		FlatFinder finder = new FlatFinder(RecordPath.from(path).getPath(), prefix, bounds.size() + 1);
+		for (int i = 0; i <= bounds.size(); i++) {
+			String startAfter = i == 0 ? null : bounds.get(i - 1);
+			String endAt = i == bounds.size() ? null : bounds.get(i);
+			finder.threader.execute(prefix + "@" + i, () -> finder.list(startAfter, endAt));
+		}
+
+		return StreamSupport.stream(finder, false).onClose(finder::close);
+	}
+
+	@Nonnull
+	private List<String> listPrefixes(@Nonnull String prefix) throws IOException {
+		ListObjectsV2Request request = new ListObjectsV2Request()
+				.withBucketName(bucket).withPrefix(prefix).withDelimiter("/");
+
+		List<String> prefixes = new ArrayList<>();
+		ListObjectsV2Result listing;
+		do {
+			listing = get(request.getPrefix(), s3 -> s3.listObjectsV2(request));
+			prefixes.addAll(listing.getCommonPrefixes());
+			request.setContinuationToken(listing.getNextContinuationToken());
+		} while (listing.isTruncated());
+
+		return prefixes;
+	}
+
+	/**
+	 * Lists every key under a prefix without a delimiter, in one or more {@code StartAfter} partitions,
+	 * and derives directory records from the key paths.
+	 */
+	private class FlatFinder extends IndefiniteSpliterator<Record> {
+		private final String basePath;
+		private final String prefix;
+		private final int partitions;
+		private final Threader threader;
+		private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>(10000);
+		private final Set<String> dirs = ConcurrentHashMap.newKeySet();
+		private final Record end = Record.noFile(uri, "");
+		private final AtomicInteger finished = new AtomicInteger();
+		private volatile boolean closed;
+
+		private FlatFinder(@Nonnull String basePath, @Nonnull String prefix, int partitions) {
+			this.basePath = basePath;
+			this.prefix = prefix;
+			this.partitions = partitions;
+			threader = new Threader(partitions);
+		}
+
+		private void list(@Nullable String startAfter, @Nullable String endAt) throws InterruptedException {
+			ListObjectsV2Request request = new ListObjectsV2Request()
+					.withBucketName(bucket).withPrefix(prefix).withStartAfter(startAfter);
+
+			try {
+				ListObjectsV2Result listing;
+				do {
+					listing = get(request.getPrefix(), s3 -> s3.listObjectsV2(request));
+
+					for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+						String key = summary.getKey();
+						if (endAt != null && key.compareTo(endAt) > 0) {
+							return;
+						}
+
+						String subpath = key.substring(prefix.length());
+						if (subpath.isEmpty()) {
+							// the search root's own dir marker
+							continue;
+						}
+
+						boolean marker = subpath.endsWith("/");
+						if (marker) {
+							subpath = subpath.substring(0, subpath.length() - 1);
+						}
+
+						putDirs(marker ? subpath : RecordPath.getFolder(subpath));
+
+						if (!marker) {
+							long time = summary.getLastModified().getTime();
+							long size = summary.getSize();
+							put(new Record(uri, RecordPath.from(basePath + "/" + subpath), time, size, false));
+						}
+					}
+
+					request.setContinuationToken(listing.getNextContinuationToken());
+				} while (listing.isTruncated() && !closed);
+			} catch (IOException e) {
+				log.warn("failed to find records: " + prefix + " after " + startAfter, e);
+			} finally {
+				if (finished.incrementAndGet() == partitions) {
+					put(end);
+				}
+			}
+		}
+
+		private void putDirs(@Nonnull String subpath) throws InterruptedException {
+			// parents are always added before children, so stop at the first one already seen
+			Deque<String> newDirs = new ArrayDeque<>();
+			while (!subpath.isEmpty() && dirs.add(subpath)) {
+				newDirs.push(subpath);
+				subpath = RecordPath.getFolder(subpath);
+			}
+
+			for (String dir : newDirs) {
+				put(new Record(uri, RecordPath.from(basePath + "/" + dir), 0, 0, true));
+			}
+		}
+
+		private void put(@Nonnull Record record) throws InterruptedException {
+			while (!closed && !queue.offer(record, 1, TimeUnit.SECONDS)) {
+				// check closed and try again
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(@Nonnull Consumer<? super Record> action) {
+			try {
+				Record record = queue.take();
+				if (record == end) {
+					queue.offer(end);
+					threader.close();
+					return false;
+				}
+
+				action.accept(record);
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		private void close() {
+			closed = true;
+			threader.close();
+		}
+	}
+
 	@Override
 	@Nonnull
 	public Record getRecord(@Nonnull String path) throws IOException {
 		try {
-			ObjectMetadata metadata = s3().getObjectMetadata(bucket, keyForPath(path));
+			String key = keyForPath(path);
+			ObjectMetadata metadata = call(key, s3 -> s3.getObjectMetadata(bucket, key));
 			long time = metadata.getLastModified().getTime();
 			long size = metadata.getContentLength();
 			boolean directory = path.endsWith("/");
@@ -191,10 +401,226 @@ public class S3Filer implements Filer {
 		}
 	}
 
+	/**
+	 * Paths that share a folder are looked up together with one delimited listing of their common key prefix,
+	 * instead of one HEAD request each. The listing stops once it passes the last key of the group, or after a
+	 * page budget proportional to the group size, and any keys it did not reach fall back to {@link #getRecord}.
+	 */
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		Record[] records = new Record[paths.size()];
+		Map<String, List<Integer>> folders = new LinkedHashMap<>();
+		for (int i = 0; i < paths.size(); i++) {
+			String key = keyForPath(paths.get(i));
+			String folder = key.isEmpty() || key.endsWith("/") ? key : key.substring(0, key.lastIndexOf('/') + 1);
+			folders.computeIfAbsent(folder, k -> new ArrayList<>()).add(i);
+		}
+
+		List<ListenableFuture<Void>> futures = new ArrayList<>();
+		for (Map.Entry<String, List<Integer>> entry : folders.entrySet()) {
+			futures.add(threader.get().execute("records@" + entry.getKey(),
+					() -> fillRecords(paths, entry.getValue(), records)));
+		}
+		Futures.getChecked(Futures.allAsList(futures), IOException.class);
+
+		return Arrays.asList(records);
+	}
+
+	private void fillRecords(@Nonnull List<String> paths, @Nonnull List<Integer> indexes, @Nonnull Record[] records)
+			throws IOException {
+		TreeMap<String, List<Integer>> keys = new TreeMap<>();
+		for (int index : indexes) {
+			String path = paths.get(index);
+			if (path.endsWith("/") || keyForPath(path).isEmpty()) {
+				records[index] = getRecord(path);
+			} else {
+				keys.computeIfAbsent(keyForPath(path), k -> new ArrayList<>()).add(index);
+			}
+		}
+
+		if (keys.size() > 1) {
+			String prefix = Strings.commonPrefix(keys.firstKey(), keys.lastKey());
+			ListObjectsV2Request request = new ListObjectsV2Request()
+					.withBucketName(bucket).withPrefix(prefix).withDelimiter("/");
+			int pages = Math.max(1, keys.size() / RECORDS_PER_PAGE);
+
+			ListObjectsV2Result listing;
+			do {
+				listing = get(request.getPrefix(), s3 -> s3.listObjectsV2(request));
+				for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+					List<Integer> found = keys.remove(summary.getKey());
+					if (found != null) {
+						long time = summary.getLastModified().getTime();
+						long size = summary.getSize();
+						for (int index : found) {
+							records[index] = new Record(uri, RecordPath.from(paths.get(index)), time, size, false);
+						}
+					}
+				}
+
+				// listings are sorted, so keys up to the end of this page that were not listed do not exist
+				SortedMap<String, List<Integer>> missing = listing.isTruncated()
+						? keys.headMap(lastKey(listing), true) : keys;
+				for (List<Integer> list : missing.values()) {
+					for (int index : list) {
+						records[index] = Record.noFile(uri, paths.get(index));
+					}
+				}
+				missing.clear();
+				request.setContinuationToken(listing.getNextContinuationToken());
+			} while (listing.isTruncated() && !keys.isEmpty() && --pages > 0);
+		}
+
+		for (List<Integer> unknown : keys.values()) {
+			for (int index : unknown) {
+				records[index] = getRecord(paths.get(index));
+			}
+		}
+	}
+
+	@Nonnull
+	private static String lastKey(@Nonnull ListObjectsV2Result listing) {
+		List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+		List<String> prefixes = listing.getCommonPrefixes();
+		String lastSummary = summaries.isEmpty() ? "" : summaries.get(summaries.size() - 1).getKey();
+		String lastPrefix = prefixes.isEmpty() ? "" : prefixes.get(prefixes.size() - 1);
+		return lastSummary.compareTo(lastPrefix) > 0 ? lastSummary : lastPrefix;
+	}
+
 	@Override
 	@Nonnull
 	public InputStream readFile(@Nonnull String path) throws IOException {
-		S3Object object = get(s3 -> s3.getObject(bucket, keyForPath(path)));
+		String key = keyForPath(path);
+		if (parallelReadThreshold < 0) {
+			return readObject(get(key, s3 -> s3.getObject(bucket, key)));
+		}
+
+		// the first part also tells us the full length of the object
+		S3Object object;
+		try {
+			object = getObject(new GetObjectRequest(bucket, key).withRange(0, readPartSize - 1));
+		} catch (IOException e) {
+			if (isInvalidRange(e)) {
+				// empty objects cannot satisfy any range
+				return readObject(get(key, s3 -> s3.getObject(bucket, key)));
+			}
+			throw e;
+		}
+
+		InputStream in = readObject(object);
+		long length = object.getObjectMetadata().getInstanceLength();
+		String eTag = object.getObjectMetadata().getETag();
+
+		if (length <= readPartSize) {
+			return in;
+		} else if (length <= parallelReadThreshold) {
+			GetObjectRequest request = new GetObjectRequest(bucket, key)
+					.withRange(readPartSize, length - 1).withMatchingETagConstraint(eTag);
+			return new SequenceInputStream(in, readObject(getObject(request)));
+		} else {
+			return readParts(key, eTag, length, in);
+		}
+	}
+
+	@Nonnull
+	private InputStream readParts(@Nonnull String key, @Nonnull String eTag, long length, @Nonnull InputStream first) {
+		return new InputStream() {
+			private final Deque<ListenableFuture<byte[]>> parts = new ArrayDeque<>();
+			private InputStream in = first;
+			private long offset = readPartSize;
+			private boolean closed;
+
+			{
+				fill();
+			}
+
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+			}
+
+			@Override
+			public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+				if (closed) {
+					throw new IOException("stream closed");
+				}
+
+				while (true) {
+					int count = in.read(b, off, len);
+					if (count != -1 || parts.isEmpty()) {
+						return count;
+					}
+
+					in.close();
+					in = new ByteArrayInputStream(Futures.getChecked(parts.poll(), IOException.class));
+					fill();
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (!closed) {
+					closed = true;
+					parts.forEach(part -> part.cancel(false));
+					parts.clear();
+					in.close();
+				}
+			}
+
+			private void fill() {
+				while (parts.size() < readAhead && offset < length) {
+					long partOffset = offset;
+					long partLength = Math.min(readPartSize, length - offset);
+					parts.add(threader.get().submit(key + "@" + partOffset,
+							() -> readPart(key, eTag, partOffset, partLength)));
+					offset += partLength;
+				}
+			}
+		};
+	}
+
+	@Nonnull
+	private byte[] readPart(@Nonnull String key, @Nonnull String eTag, long offset, long length) throws IOException {
+		GetObjectRequest request = new GetObjectRequest(bucket, key)
+				.withRange(offset, offset + length - 1).withMatchingETagConstraint(eTag);
+		try (InputStream in = getObject(request).getObjectContent()) {
+			return IOUtils.toByteArray(in);
+		}
+	}
+
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		if (length == 0) {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+
+		// lengths like Long.MAX_VALUE mean "to the end", so clamp the inclusive end rather than overflow it
+		long end = length > Long.MAX_VALUE - offset ? Long.MAX_VALUE - 1 : offset + length - 1;
+		try {
+			return readObject(getObject(new GetObjectRequest(bucket, keyForPath(path)).withRange(offset, end)));
+		} catch (IOException e) {
+			if (isInvalidRange(e)) {
+				return new ByteArrayInputStream(new byte[0]);
+			}
+			throw e;
+		}
+	}
+
+	@Nonnull
+	private S3Object getObject(@Nonnull GetObjectRequest request) throws IOException {
+		S3Object object = get(request.getKey(), s3 -> s3.getObject(request));
+		if (object == null) {
+			// only happens when a constraint on the request was not met
+			throw new IOException("object changed while reading: " + request.getKey());
+		}
+		return object;
+	}
+
+	@Nonnull
+	private InputStream readObject(@Nonnull S3Object object) {
 		S3ObjectInputStream s3In = object.getObjectContent();
 		long length = object.getObjectMetadata().getContentLength();
 		AtomicLong counter = new AtomicLong();
@@ -214,19 +640,25 @@ public class S3Filer implements Filer {
 		};
 	}
 
+	private static boolean isInvalidRange(@Nonnull IOException e) {
+		int status = e.getCause() instanceof AmazonServiceException
+				? ((AmazonServiceException) e.getCause()).getStatusCode() : 0;
+		return status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) {
 		return new OutputStream() {
 			private final String key = keyForPath(path);
-			private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			private ByteBuffer buffer;
 			private Needle<PartETag> needle;
 			private String uploadId;
 			private boolean closed;
 
 			@Override
 			public void write(int b) throws IOException {
-				baos.write(b);
+				buffer().put((byte) b);
 				flip(partSize);
 			}
 
@@ -237,8 +669,14 @@ public class S3Filer implements Filer {
 
 			@Override
 			public void write(@Nonnull byte[] b, int off, int len) throws IOException {
-				baos.write(b, off, len);
-				flip(partSize);
+				while (len > 0) {
+					ByteBuffer buffer = buffer();
+					int count = Math.min(len, buffer.remaining());
+					buffer.put(b, off, count);
+					off += count;
+					len -= count;
+					flip(partSize);
+				}
 			}
 
 			@Override
@@ -246,33 +684,56 @@ public class S3Filer implements Filer {
 				if (closed) {
 					return;
 				}
+				closed = true;
 
-				if (needle == null) {
-					InputStream in = nextInputStream();
-					ObjectMetadata metadata = new ObjectMetadata();
-					metadata.setContentLength(baos.size());
-					PutObjectRequest request = new PutObjectRequest(bucket, key, in, metadata)
-							.withStorageClass(storageClass);
-					use(s3 -> s3.putObject(request));
-				} else {
-					flip(1);
-
-					try {
-						List<PartETag> tags = needle.toList();
-
-						use(s3 -> s3.completeMultipartUpload(
-								new CompleteMultipartUploadRequest(bucket, key, uploadId, tags)));
-					} catch (UncheckedException e) {
-						use(s3 -> s3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId)));
-						throw e.unwrap(IOException.class);
+				try {
+					if (needle == null) {
+						ObjectMetadata metadata = new ObjectMetadata();
+						metadata.setContentLength(buffer == null ? 0 : buffer.position());
+						InputStream in = buffer == null
+								? new ByteArrayInputStream(new byte[0]) : nextInputStream(buffer);
+						PutObjectRequest request = new PutObjectRequest(bucket, key, in, metadata)
+								.withStorageClass(storageClass);
+						use(key, s3 -> s3.putObject(request));
+					} else {
+						flip(1);
+
+						try {
+							List<PartETag> tags = needle.toList();
+
+							use(key, s3 -> s3.completeMultipartUpload(
+									new CompleteMultipartUploadRequest(bucket, key, uploadId, tags)));
+						} catch (UncheckedException e) {
+							use(key, s3 -> s3.abortMultipartUpload(
+									new AbortMultipartUploadRequest(bucket, key, uploadId)));
+							throw e.unwrap(IOException.class);
+						}
 					}
+				} finally {
+					releaseBuffer();
 				}
+			}
 
-				closed = true;
+			private void releaseBuffer() {
+				if (buffer != null) {
+					bufferPool.get().release(buffer);
+					buffer = null;
+				}
+			}
+
+			@Nonnull
+			private ByteBuffer buffer() throws IOException {
+				if (closed) {
+					throw new IOException("stream closed");
+				}
+				if (buffer == null) {
+					buffer = bufferPool.get().acquire(this);
+				}
+				return buffer;
 			}
 
 			private void flip(long minSize) throws IOException {
-				if (baos.size() < minSize) {
+				if (buffer == null || buffer.position() < minSize) {
 					return;
 				}
 
@@ -280,10 +741,11 @@ public class S3Filer implements Filer {
 					needle = threader.get().needle();
 					InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(bucket, key)
 							.withStorageClass(storageClass);
-					uploadId = get(s3 -> s3.initiateMultipartUpload(request).getUploadId());
+					uploadId = get(key, s3 -> s3.initiateMultipartUpload(request).getUploadId());
 				}
 
-				InputStream in = nextInputStream();
+				ByteBuffer part = buffer;
+				buffer = null;
 				int partNum = needle.size() + 1;
 
 				UploadPartRequest uploadRequest = new UploadPartRequest()
@@ -291,17 +753,25 @@ public class S3Filer implements Filer {
 						.withBucketName(bucket)
 						.withKey(key)
 						.withPartNumber(partNum)
-						.withPartSize(baos.size())
-						.withInputStream(in);
+						.withPartSize(part.position())
+						.withInputStream(nextInputStream(part));
 
-				needle.submit(uploadId + "@" + partNum, () -> get(s3 -> s3.uploadPart(uploadRequest).getPartETag()));
-
-				baos.reset();
+				needle.submit(uploadId + "@" + partNum, () -> {
+					try {
+						return get(key, s3 -> s3.uploadPart(uploadRequest).getPartETag());
+					} finally {
+						bufferPool.get().release(part);
+					}
+				});
 			}
 
 			@Nonnull
-			private InputStream nextInputStream() {
-				return new LimiterInputStream(new ByteArrayInputStream(baos.toByteArray()), bitLimiter);
+			private InputStream nextInputStream(@Nonnull ByteBuffer part) {
+				part.flip();
+				InputStream in = new ByteBufferInputStream(part);
+				// the part stays leased for as long as the upload can still read it
+				bufferPool.get().transfer(part, in);
+				return new LimiterInputStream(in, bitLimiter);
 			}
 		};
 	}
@@ -321,22 +791,79 @@ public class S3Filer implements Filer {
 	@Override
 	public void setFileTime(@Nonnull String path, long time) throws IOException {
 		String key = keyForPath(path);
-		ObjectMetadata metadata = get(s3 -> s3.getObjectMetadata(bucket, key));
+		ObjectMetadata metadata = get(key, s3 -> s3.getObjectMetadata(bucket, key));
 		metadata.setLastModified(new Date(time));
-		use(s3 -> s3.copyObject(new CopyObjectRequest(bucket, key, bucket, key).withNewObjectMetadata(metadata)));
+		use(key, s3 -> s3.copyObject(new CopyObjectRequest(bucket, key, bucket, key).withNewObjectMetadata(metadata)));
 	}
 
 	@Override
 	public void deleteFile(@Nonnull String path) throws IOException {
-		use(s3 -> s3.deleteObject(bucket, keyForPath(path)));
+		String key = keyForPath(path);
+		use(key, s3 -> s3.deleteObject(bucket, key));
+	}
+
+	@Override
+	public void deleteFiles(@Nonnull Collection<String> paths) throws IOException {
+		List<String> keys = new ArrayList<>();
+		List<ListenableFuture<Void>> futures = new ArrayList<>();
+		for (String path : paths) {
+			keys.add(keyForPath(path));
+			if (keys.size() == DELETE_BATCH) {
+				futures.add(deleteKeys(keys));
+				keys = new ArrayList<>();
+			}
+		}
+		if (!keys.isEmpty()) {
+			futures.add(deleteKeys(keys));
+		}
+		Futures.getChecked(Futures.allAsList(futures), IOException.class);
+	}
+
+	@Override
+	public void deleteTree(@Nonnull String path) throws IOException {
+		String key = keyForPath(RecordPath.from(path).getPath());
+		String prefix = key.isEmpty() ? "" : key + "/";
+
+		List<String> keys = new ArrayList<>();
+		List<ListenableFuture<Void>> futures = new ArrayList<>();
+		if (!key.isEmpty()) {
+			keys.add(key);
+		}
+
+		ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(bucket).withPrefix(prefix);
+		ListObjectsV2Result result;
+		do {
+			result = get(request.getPrefix(), s3 -> s3.listObjectsV2(request));
+			for (S3ObjectSummary summary : result.getObjectSummaries()) {
+				keys.add(summary.getKey());
+				if (keys.size() == DELETE_BATCH) {
+					futures.add(deleteKeys(keys));
+					keys = new ArrayList<>();
+				}
+			}
+			request.setContinuationToken(result.getNextContinuationToken());
+		} while (result.isTruncated());
+
+		if (!keys.isEmpty()) {
+			futures.add(deleteKeys(keys));
+		}
+		Futures.getChecked(Futures.allAsList(futures), IOException.class);
+	}
+
+	@Nonnull
+	private ListenableFuture<Void> deleteKeys(@Nonnull List<String> keys) {
+		DeleteObjectsRequest request = new DeleteObjectsRequest(bucket).withQuiet(true)
+				.withKeys(keys.toArray(new String[0]));
+		return threader.get().execute("delete@" + keys.get(0), () -> use(keys.get(0), s3 -> s3.deleteObjects(request)));
 	}
 
 	@Override
 	public void renameFile(@Nonnull String oldPath, @Nonnull String newPath) throws IOException {
 		String oldKey = keyForPath(oldPath);
 		String newKey = keyForPath(newPath);
-		use(s3 -> s3.copyObject(new CopyObjectRequest(bucket, oldKey, bucket, newKey).withStorageClass(storageClass)));
-		use(s3 -> s3.deleteObject(bucket, oldKey));
+		use(newKey, s3 -> s3.copyObject(new CopyObjectRequest(bucket, oldKey, bucket, newKey)
+				.withStorageClass(storageClass)));
+		use(oldKey, s3 -> s3.deleteObject(bucket, oldKey));
 	}
 
 	@Override
@@ -345,7 +872,8 @@ public class S3Filer implements Filer {
 			InputStream in = new ByteArrayInputStream(new byte[0]);
 			ObjectMetadata metadata = new ObjectMetadata();
 			metadata.setContentLength(0);
-			use(s3 -> s3.putObject(bucket, keyForPath(path) + "/", in, metadata));
+			String key = keyForPath(path) + "/";
+			use(key, s3 -> s3.putObject(bucket, key, in, metadata));
 		}
 	}
 
@@ -357,7 +885,8 @@ public class S3Filer implements Filer {
 	@Override
 	public void close() throws IOException {
 		threader.getOptional().ifPresent(Threader::close);
-		use(AmazonS3::shutdown);
+		bufferPool.getOptional().ifPresent(BufferPool::clear);
+		internalS3.shutdown();
 	}
 
 	@Nonnull
@@ -365,24 +894,104 @@ public class S3Filer implements Filer {
 		return path.startsWith("/") ? path.substring(1) : path;
 	}
 
+	/**
+	 * Current request rate of the limiter that governs the key for this path.
+	 */
+	public double getRate(@Nonnull String path) {
+		return limiterForKey(keyForPath(path)).getRate();
+	}
+
+	/**
+	 * Current request rate of every key prefix seen so far, keyed by prefix.
+	 */
 	@Nonnull
-	private AmazonS3 s3() {
+	public Map<String, Double> getRates() {
+		Map<String, Double> rates = new TreeMap<>();
+		limiters.forEach((prefix, limiter) -> rates.put(prefix, limiter.getRate()));
+		return rates;
+	}
+
+	@Nonnull
+	private AdaptiveRateLimiter limiterForKey(@Nonnull String key) {
+		int end = 0;
+		for (int i = 0; i < ratePrefixDepth; i++) {
+			int index = key.indexOf('/', end);
+			if (index == -1) {
+				break;
+			}
+			end = index + 1;
+		}
+		return limiters.computeIfAbsent(key.substring(0, end), prefix -> limiterSupplier.get());
+	}
+
+	private <T> T call(@Nonnull String key, @Nonnull Function<AmazonS3, T> function) {
+		AdaptiveRateLimiter limiter = limiterForKey(key);
 		limiter.acquire();
-		return internalS3;
+		Attempts attempts = new Attempts(limiter);
+		currentAttempts.set(attempts);
+		try {
+			T result = function.apply(internalS3);
+			limiter.onSuccess();
+			return result;
+		} catch (AmazonClientException e) {
+			// clients without the throttle handler only surface the throttle once retries are exhausted
+			if (!attempts.throttled && RetryUtils.isThrottlingException(e)) {
+				limiter.onThrottle();
+			}
+			throw e;
+		} finally {
+			currentAttempts.remove();
+		}
+	}
+
+	/**
+	 * Request handler that reports every throttled attempt, including the ones the SDK retries internally, to
+	 * the limiter of the {@link S3Filer} call running on the current thread. {@link #buildS3} installs it;
+	 * clients built elsewhere should add it with {@code withRequestHandlers} for the limiter to see SlowDown
+	 * responses before {@code s3.maxErrorRetry} is used up.
+	 */
+	@Nonnull
+	public static RequestHandler2 throttleHandler() {
+		return THROTTLE_HANDLER;
+	}
+
+	private static class Attempts {
+		private final AdaptiveRateLimiter limiter;
+		private boolean throttled;
+
+		private Attempts(@Nonnull AdaptiveRateLimiter limiter) {
+			this.limiter = limiter;
+		}
+	}
+
+	private static class ThrottleHandler extends RequestHandler2 {
+		@Override
+		public void afterAttempt(HandlerAfterAttemptContext context) {
+			Attempts attempts = currentAttempts.get();
+			Exception exception = context.getException();
+			if (attempts != null && exception instanceof SdkBaseException
+					&& RetryUtils.isThrottlingException((SdkBaseException) exception)) {
+				attempts.throttled = true;
+				attempts.limiter.onThrottle();
+			}
+		}
 	}
 
-	private void use(@Nonnull Consumer<AmazonS3> consumer) throws IOException {
+	private void use(@Nonnull String key, @Nonnull Consumer<AmazonS3> consumer) throws IOException {
 		try {
-			consumer.accept(s3());
+			call(key, s3 -> {
+				consumer.accept(s3);
+				return null;
+			});
 		} catch (AmazonClientException e) {
 			throw new IOException(e);
 		}
 	}
 
 	@Nonnull
-	private <T> T get(@Nonnull Function<AmazonS3, T> function) throws IOException {
+	private <T> T get(@Nonnull String key, @Nonnull Function<AmazonS3, T> function) throws IOException {
 		try {
-			return function.apply(s3());
+			return call(key, function);
 		} catch (AmazonClientException e) {
 			throw new IOException(e);
 		}
@@ -405,6 +1014,7 @@ public class S3Filer implements Filer {
 		cc.setClientExecutionTimeout((int) config.getTime("s3.clientExecutionTimeout", "0"));
 		cc.setMaxConnections(config.getInt("s3.maxConnections", 50));
 		builder.withClientConfiguration(cc);
+		builder.withRequestHandlers(THROTTLE_HANDLER);
 
 		String region = config.getString("aws.region", null);
 		String endpoint = config.getString("aws.endpoint", null);
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -47,14 +48,19 @@ public class StatsFiler extends DecoratedFiler {
 	private final Stat getUriStat = new Stat("getUri");
 	private final Stat listRecordsStat = new Stat("listRecords");
 	private final Stat getRecordStat = new Stat("getRecord");
+	private final Stat getRecordsStat = new Stat("getRecords");
 	private final Stat findRecordsStat = new Stat("findRecords");
 	private final Stat getHashFileStat = new Stat("getHash");
 	private final Stat readFileStat = new Stat("readFile");
+	private final Stat readRangeStat = new Stat("readRange");
+	private final Stat readAtStat = new Stat("readAt");
 	private final Stat writeFileStat = new Stat("writeFile");
 	private final Stat appendFileStat = new Stat("appendFile");
 	private final Stat openFileStat = new Stat("openFile");
 	private final Stat setFileTimeStat = new Stat("setFileTime");
 	private final Stat removeFileStat = new Stat("deleteFile");
+	private final Stat removeFilesStat = new Stat("deleteFiles");
+	private final Stat removeTreeStat = new Stat("deleteTree");
 	private final Stat createDirsStat = new Stat("createDirs");
 	private final Stat renameFileStat = new Stat("renameFile");
 	private final Stat closeStat = new Stat("close");
@@ -96,6 +102,14 @@ public class StatsFiler extends DecoratedFiler {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		try (Closeable ignored = getRecordsStat.start()) {
+			return delegate.getRecords(paths);
+		}
+	}
+
 	@Override
 	@Nonnull
 	public Stream<Record> findRecords(@Nonnull String path, int threads) throws IOException {
@@ -120,6 +134,21 @@ public class StatsFiler extends DecoratedFiler {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		try (Closeable ignored = readRangeStat.start()) {
+			return delegate.readRange(path, offset, length);
+		}
+	}
+
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		try (Closeable ignored = readAtStat.start()) {
+			return delegate.readAt(path, position, b, off, len);
+		}
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
@@ -158,6 +187,20 @@ public class StatsFiler extends DecoratedFiler {
 		}
 	}
 
+	@Override
+	public void deleteFiles(@Nonnull Collection<String> paths) throws IOException {
+		try (Closeable ignored = removeFilesStat.start()) {
+			delegate.deleteFiles(paths);
+		}
+	}
+
+	@Override
+	public void deleteTree(@Nonnull String path) throws IOException {
+		try (Closeable ignored = removeTreeStat.start()) {
+			delegate.deleteTree(path);
+		}
+	}
+
 	@Override
 	public void createDirs(@Nonnull String path) throws IOException {
 		try (Closeable ignored = createDirsStat.start()) {
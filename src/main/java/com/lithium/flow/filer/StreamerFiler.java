@@ -39,6 +39,7 @@ public class StreamerFiler extends DecoratedFiler {
 		this.streamer = checkNotNull(streamer);
 
 		bypassDelegateHash = true;
+		bypassDelegateRange = true;
 	}
 
 	@Override
@@ -42,6 +42,7 @@ public class RedisHashFiler extends DecoratedFiler {
 	public RedisHashFiler(@Nonnull Filer delegate, @Nonnull Config config) {
 		super(checkNotNull(delegate));
 		checkNotNull(config);
+		bypassDelegateDelete = true;
 		pooler = JedisUtils.buildPooler(config);
 		prefix = config.getString("prefix", "");
 		expire = config.getString("expire", "-1").equals("-1") ? -1 : (int) (config.getTime("expire") / 1000);
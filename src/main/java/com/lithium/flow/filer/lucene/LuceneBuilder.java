@@ -0,0 +1,234 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.filer.lucene;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.lucene.index.IndexWriterConfig.OpenMode;
+
+import com.lithium.flow.config.Config;
+import com.lithium.flow.filer.Filer;
+import com.lithium.flow.filer.Record;
+import com.lithium.flow.util.Logs;
+import com.lithium.flow.util.Threader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocValuesFieldExistsQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+
+/**
+ * Crawls a subtree of a filer in parallel into a fresh index for {@link LuceneFiler}, with a large RAM buffer and no
+ * near-real-time reopens.
+ * <p>
+ * Each dir gets a listing marker once all of its records are written, and the index is committed every
+ * {@code index.build.commitInterval}, so a build that fails or is killed resumes from the dirs without markers.
+ *
+ * @author Matt Ayres
+ */
+public class LuceneBuilder {
+	private static final Logger log = Logs.getLogger();
+
+	private final Filer filer;
+	private final int threads;
+	private final int retries;
+	private final double ramMb;
+	private final long commitInterval;
+
+	public LuceneBuilder(@Nonnull Filer filer, @Nonnull Config config) {
+		this.filer = checkNotNull(filer);
+		checkNotNull(config);
+
+		threads = config.getInt("index.build.threads", 16);
+		retries = config.getInt("index.build.retries", 2);
+		ramMb = config.getDouble("index.build.ramMb", 256);
+		commitInterval = config.getTime("index.build.commitInterval", "1m");
+	}
+
+	/**
+	 * Builds or resumes the index in the dir for the subtree at the path, and leaves it committed and closed.
+	 *
+	 * @throws IOException if any dir could not be crawled, in which case calling this again resumes the build
+	 */
+	public void build(@Nonnull File indexDir, @Nonnull String path) throws IOException {
+		checkNotNull(indexDir);
+		String treePath = RecordDoc.getTermForSubtree(checkNotNull(path)).text();
+
+		IndexWriterConfig writerConfig = new IndexWriterConfig(null);
+		writerConfig.setOpenMode(OpenMode.CREATE_OR_APPEND);
+		writerConfig.setRAMBufferSizeMB(ramMb);
+
+		try (Directory dir = FSDirectory.open(indexDir.toPath());
+				IndexWriter writer = new IndexWriter(dir, writerConfig)) {
+			Set<String> pending = getPending(writer, treePath);
+			log.info("index build: {} dirs to crawl under {}", pending.size(), treePath);
+
+			AtomicLong records = new AtomicLong();
+			AtomicInteger failed = new AtomicInteger();
+			ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+			scheduler.scheduleWithFixedDelay(() -> commit(writer, records), commitInterval, commitInterval,
+					TimeUnit.MILLISECONDS);
+
+			Threader threader = new Threader(threads).withRetries(retries);
+			try {
+				pending.forEach(dirPath -> crawl(threader, writer, dirPath, records, failed));
+				threader.close();
+			} finally {
+				scheduler.shutdownNow();
+			}
+
+			if (failed.get() > 0) {
+				writer.commit();
+				throw new IOException("index build failed for " + failed.get() + " dirs under " + treePath);
+			}
+
+			writer.updateDocument(RecordDoc.getTermForMarker(RecordDoc.MARKER_TREE, treePath),
+					RecordDoc.createMarker(RecordDoc.MARKER_TREE, treePath, System.currentTimeMillis()));
+			writer.commit();
+			log.info("index build: {} records under {}", records.get(), treePath);
+		}
+	}
+
+	private void crawl(@Nonnull Threader threader, @Nonnull IndexWriter writer, @Nonnull String path,
+			@Nonnull AtomicLong records, @Nonnull AtomicInteger failed) {
+		AtomicInteger attempts = new AtomicInteger();
+		threader.execute("crawl:" + path, () -> {
+			List<String> dirs = new ArrayList<>();
+			try {
+				for (Record record : filer.listRecords(path)) {
+					RecordDoc recordDoc = RecordDoc.create(record, System.currentTimeMillis());
+					writer.updateDocument(recordDoc.getTerm(), recordDoc.getDocument());
+					records.incrementAndGet();
+					if (record.isDir()) {
+						dirs.add(record.getPath());
+					}
+				}
+
+				// only marked after its records, so a resumed build knows to crawl it again otherwise
+				writer.updateDocument(RecordDoc.getTermForMarker(RecordDoc.MARKER_LIST, path),
+						RecordDoc.createMarker(RecordDoc.MARKER_LIST, path, System.currentTimeMillis()));
+			} catch (IOException | RuntimeException e) {
+				if (attempts.incrementAndGet() > retries) {
+					failed.incrementAndGet();
+				}
+				throw e;
+			}
+
+			// submitted only once this dir is done, so a retry never crawls them twice
+			dirs.forEach(dir -> crawl(threader, writer, dir, records, failed));
+		});
+	}
+
+	private void commit(@Nonnull IndexWriter writer, @Nonnull AtomicLong records) {
+		try {
+			writer.commit();
+			log.info("index build: committed {} records", records.get());
+		} catch (IOException | RuntimeException e) {
+			log.warn("index build: commit failed", e);
+		}
+	}
+
+	/**
+	 * Finds the dirs still to crawl: the root until it is listed, then every indexed dir under it without a listing
+	 * marker.
+	 */
+	@Nonnull
+	private Set<String> getPending(@Nonnull IndexWriter writer, @Nonnull String path) throws IOException {
+		Set<String> pending = new LinkedHashSet<>();
+		pending.add(path);
+
+		try (DirectoryReader reader = DirectoryReader.open(writer)) {
+			if (reader.numDocs() == 0) {
+				return pending;
+			}
+			IndexSearcher searcher = new IndexSearcher(reader);
+
+			RecordCollector dirs = new RecordCollector(Long.MIN_VALUE);
+			searcher.search(new BooleanQuery.Builder()
+					.add(new TermQuery(RecordDoc.getTermForSubtree(path)), Occur.FILTER)
+					.add(new TermQuery(RecordDoc.getTermForDir(true)), Occur.FILTER)
+					.build(), dirs);
+			dirs.getRecords().forEach(record -> pending.add(record.getPath()));
+
+			MarkerCollector listed = new MarkerCollector(RecordDoc.MARKER_LIST);
+			searcher.search(new BooleanQuery.Builder()
+					.add(new DocValuesFieldExistsQuery(RecordDoc.MARKER_LIST), Occur.FILTER)
+					.add(new BooleanQuery.Builder()
+							.add(new TermQuery(RecordDoc.getTermForMarker(RecordDoc.MARKER_LIST, path)), Occur.SHOULD)
+							.add(new TermQuery(RecordDoc.getTermForMarkerSubtree(path)), Occur.SHOULD)
+							.build(), Occur.FILTER)
+					.build(), listed);
+			pending.removeAll(listed.paths);
+		}
+
+		return pending;
+	}
+
+	private static class MarkerCollector extends SimpleCollector {
+		private final String field;
+		private final List<String> paths = new ArrayList<>();
+		private BinaryDocValues values;
+
+		private MarkerCollector(@Nonnull String field) {
+			this.field = field;
+		}
+
+		@Override
+		protected void doSetNextReader(@Nonnull LeafReaderContext context) throws IOException {
+			values = context.reader().getBinaryDocValues(field);
+		}
+
+		@Override
+		public void collect(int doc) throws IOException {
+			if (values != null && values.advanceExact(doc)) {
+				BytesRef value = values.binaryValue();
+				paths.add(value.utf8ToString());
+			}
+		}
+
+		@Override
+		@Nonnull
+		public ScoreMode scoreMode() {
+			return ScoreMode.COMPLETE_NO_SCORES;
+		}
+	}
+}
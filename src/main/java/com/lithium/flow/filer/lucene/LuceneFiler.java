@@ -17,72 +17,96 @@
 package com.lithium.flow.filer.lucene;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
 import static org.apache.lucene.index.IndexWriterConfig.OpenMode;
 
 import com.lithium.flow.config.Config;
 import com.lithium.flow.filer.DecoratedFiler;
 import com.lithium.flow.filer.Filer;
 import com.lithium.flow.filer.Record;
+import com.lithium.flow.filer.RecordFinder;
+import com.lithium.flow.filer.RecordPath;
 import com.lithium.flow.io.DecoratedOutputStream;
+import com.lithium.flow.util.CheckedFunction;
 import com.lithium.flow.util.Logs;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ReferenceManager;
-import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
 import org.apache.lucene.search.TermQuery;
-import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.NRTCachingDirectory;
 import org.slf4j.Logger;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+
 /**
+ * Decorates an instance of {@link Filer} to index records in Lucene as they are read from the delegate.
+ * <p>
+ * Markers record which dir listings and which whole subtrees have been indexed, so {@link #listRecords},
+ * {@link #findRecords} and the time and size range queries are answered from the index once the delegate has been
+ * walked, and only then.
+ *
  * @author Matt Ayres
  */
 public class LuceneFiler extends DecoratedFiler {
 	private static final Logger log = Logs.getLogger();
 
-	private final IndexWriter writer;
-	private final ReferenceManager<IndexSearcher> manager;
-	private final ControlledRealTimeReopenThread<IndexSearcher> thread;
+	private final Filer delegate;
+	private final Config config;
+	private final File indexDir;
 	private final long maxAge;
+	private final int threads;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Index index;
+	private volatile Set<String> buildJournal;
 
 	public LuceneFiler(@Nonnull Filer delegate, @Nonnull Config config) throws IOException {
 		super(delegate);
+		bypassDelegateRecords = true;
+		bypassDelegateDelete = true;
+		this.delegate = delegate;
+		this.config = checkNotNull(config);
 
-		String path = config.getString("index.path");
+		indexDir = new File(config.getString("index.path"));
 		maxAge = config.getTime("index.maxAge", "-1");
-		double maxMergeMb = config.getDouble("index.maxMergeMb", 4);
-		double maxCachedMb = config.getDouble("index.maxCacheMb", 64);
-		long targetMaxStale = config.getTime("index.targetMaxStale", "5s");
-		long targetMinStale = config.getTime("index.targetMinStale", "1s");
-
-		Directory dir = FSDirectory.open(new File(path).toPath());
-		NRTCachingDirectory cachingDir = new NRTCachingDirectory(dir, maxMergeMb, maxCachedMb);
-		IndexWriterConfig writerConfig = new IndexWriterConfig(null);
-		writerConfig.setOpenMode(OpenMode.CREATE_OR_APPEND);
-
-		writer = new IndexWriter(cachingDir, writerConfig);
-		manager = new SearcherManager(writer, true, true, new SearcherFactory());
-		thread = new ControlledRealTimeReopenThread<>(writer, manager, targetMaxStale, targetMinStale);
-		thread.start();
+		threads = config.getInt("index.threads", 1);
+		index = new Index(indexDir, config);
 	}
 
 	@Override
@@ -90,12 +114,18 @@ public class LuceneFiler extends DecoratedFiler {
 	public List<Record> listRecords(@Nonnull String path) throws IOException {
 		checkNotNull(path);
 
-		Term term = RecordDoc.getTermForParent(path);
-		List<Record> records = search(term);
-		if (records == null) {
-			records = super.listRecords(path);
-			records.forEach(this::writeRecord);
+		// records are indexed under their folder, which has no trailing slash and is empty for children of the root
+		String listPath = RecordDoc.getTermForSubtree(path).text();
+		if (isMarked(listMarker(listPath))) {
+			List<Record> records = search(new TermQuery(RecordDoc.getTermForParent(listPath)));
+			if (records != null) {
+				return existing(records);
+			}
 		}
+
+		List<Record> records = super.listRecords(path);
+		records.forEach(this::writeRecord);
+		writeMarker(RecordDoc.MARKER_LIST, listPath);
 		return records;
 	}
 
@@ -104,8 +134,7 @@ public class LuceneFiler extends DecoratedFiler {
 	public Record getRecord(@Nonnull String path) throws IOException {
 		checkNotNull(path);
 
-		Term term = RecordDoc.getTermForPath(path);
-		List<Record> records = search(term);
+		List<Record> records = search(new TermQuery(RecordDoc.getTermForPath(path)));
 		if (records == null || records.size() == 0) {
 			Record record = super.getRecord(path);
 			writeRecord(record);
@@ -118,64 +147,283 @@ public class LuceneFiler extends DecoratedFiler {
 	@Override
 	@Nonnull
 	public Stream<Record> findRecords(@Nonnull String path, int threads) throws IOException {
-		boolean useDelegate = false;
+		String treePath = RecordDoc.getTermForSubtree(path).text();
 		try {
-			Term term = RecordDoc.getTermForParent(path);
-			List<Record> records = search(term);
-			if (records == null || records.size() == 0) {
-				useDelegate = true;
+			if (isMarked(treeMarker(treePath))) {
+				List<Record> records = search(new TermQuery(RecordDoc.getTermForSubtree(treePath)));
+				if (records != null) {
+					return existing(records).stream();
+				}
 			}
 		} catch (IOException e) {
-			useDelegate = true;
+			log.debug("index search failed: {}", path, e);
 		}
 
-		if (useDelegate) {
-			return super.findRecords(path, threads).map(this::writeRecord);
-		} else {
-			return super.findRecords(path, threads);
+		// the subtree is only marked once the walk has been read to the end without failing to list any dir, which
+		// the delegate's own finder would log and skip without telling us
+		AtomicInteger errors = new AtomicInteger();
+		Stream<Record> stream = RecordFinder.stream(delegate, path, threads, errors);
+		Iterator<Record> it = stream.iterator();
+		return Streams.stream(new AbstractIterator<Record>() {
+			@Override
+			@Nullable
+			protected Record computeNext() {
+				if (it.hasNext()) {
+					return writeRecord(it.next());
+				}
+				if (errors.get() == 0) {
+					writeMarker(RecordDoc.MARKER_TREE, treePath);
+				} else {
+					log.warn("not marking incomplete walk: {} ({} dirs failed)", treePath, errors.get());
+				}
+				return endOfData();
+			}
+		}).onClose(stream::close);
+	}
+
+	/**
+	 * Returns the records in the subtree of the path with times in the inclusive range, indexing the subtree first if
+	 * it isn't already.
+	 */
+	@Nonnull
+	public List<Record> findRecordsByTime(@Nonnull String path, long minTime, long maxTime) throws IOException {
+		checkNotNull(path);
+		return searchTree(path, RecordDoc.getQueryForTime(path, minTime, maxTime));
+	}
+
+	/**
+	 * Returns the records in the subtree of the path with sizes in the inclusive range, indexing the subtree first if
+	 * it isn't already.
+	 */
+	@Nonnull
+	public List<Record> findRecordsBySize(@Nonnull String path, long minSize, long maxSize) throws IOException {
+		checkNotNull(path);
+		return searchTree(path, RecordDoc.getQueryForSize(path, minSize, maxSize));
+	}
+
+	@Nonnull
+	private List<Record> searchTree(@Nonnull String path, @Nonnull Query query) throws IOException {
+		String treePath = RecordDoc.getTermForSubtree(path).text();
+		if (isMarked(treeMarker(treePath))) {
+			List<Record> records = search(query);
+			if (records != null) {
+				return existing(records);
+			}
 		}
+
+		try (Stream<Record> stream = findRecords(path, threads)) {
+			log.debug("indexed {} records under {}", stream.count(), path);
+		}
+		withIndex(index -> {
+			index.manager.maybeRefreshBlocking();
+			return null;
+		});
+
+		List<Record> records = search(query);
+		if (records == null) {
+			throw new IOException("index still stale after walking: " + path);
+		}
+		return existing(records);
 	}
 
-	@Nullable
-	private List<Record> search(@Nonnull Term term) throws IOException {
-		long time = System.currentTimeMillis();
+	/**
+	 * Crawls the subtree at the path in parallel into a separate index with {@link LuceneBuilder}, then swaps it in
+	 * for the live index. The live index keeps serving while the crawl runs, and a failed crawl resumes on the next
+	 * call. Records outside the subtree are dropped from the index.
+	 * <p>
+	 * Paths changed through this filer during the crawl are journaled and dropped from the built index, with the
+	 * markers covering them, just before the swap. If the swap fails the live index is put back and reopened.
+	 */
+	public synchronized void buildIndex(@Nonnull String path) throws IOException {
+		checkNotNull(path);
+
+		File buildDir = new File(config.getString("index.build.path", indexDir.getPath() + ".build"));
+		File oldDir = new File(indexDir.getPath() + ".old");
+		FileUtils.deleteDirectory(oldDir);
 
-		manager.maybeRefresh();
-		IndexSearcher searcher = manager.acquire();
+		buildJournal = ConcurrentHashMap.newKeySet();
 		try {
-			TopDocs topDocs = searcher.search(new TermQuery(term), Integer.MAX_VALUE);
-			if (topDocs.totalHits.value > 0) {
-				List<Record> records = new ArrayList<>();
-				for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-					Document doc = searcher.doc(scoreDoc.doc);
-					RecordDoc recordDoc = RecordDoc.create(doc);
-					records.add(recordDoc.getRecord());
-					if (maxAge > -1 && time > recordDoc.getIndexTime() + maxAge) {
-						return null;
+			new LuceneBuilder(delegate, config).build(buildDir, path);
+
+			lock.writeLock().lock();
+			try {
+				applyJournal(buildDir, buildJournal);
+				swap(buildDir, oldDir);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} finally {
+			buildJournal = null;
+		}
+
+		FileUtils.deleteDirectory(oldDir);
+		log.info("index swapped in: {}", indexDir);
+	}
+
+	private void applyJournal(@Nonnull File buildDir, @Nonnull Set<String> journal) throws IOException {
+		IndexWriterConfig writerConfig = new IndexWriterConfig(null);
+		writerConfig.setOpenMode(OpenMode.APPEND);
+		try (Directory dir = FSDirectory.open(buildDir.toPath());
+				IndexWriter writer = new IndexWriter(dir, writerConfig)) {
+			for (String path : journal) {
+				writer.deleteDocuments(getTermsForTree(path));
+			}
+			writer.commit();
+		}
+		log.info("index build: dropped {} paths changed during the build", journal.size());
+	}
+
+	private void swap(@Nonnull File buildDir, @Nonnull File oldDir) throws IOException {
+		index.close();
+		try {
+			Files.move(indexDir.toPath(), oldDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			Files.move(buildDir.toPath(), indexDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			index = new Index(indexDir, config);
+		} catch (IOException | RuntimeException e) {
+			// put the live index back, leaving the build where a later call can pick it up
+			try {
+				if (oldDir.exists()) {
+					if (indexDir.exists()) {
+						Files.move(indexDir.toPath(), buildDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
 					}
+					Files.move(oldDir.toPath(), indexDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
 				}
-				return records;
+				index = new Index(indexDir, config);
+			} catch (IOException | RuntimeException e2) {
+				e.addSuppressed(e2);
 			}
+			throw e;
+		}
+	}
+
+	private <T> T withIndex(@Nonnull CheckedFunction<Index, T, IOException> function) throws IOException {
+		lock.readLock().lock();
+		try {
+			return function.apply(index);
 		} finally {
-			manager.release(searcher);
+			lock.readLock().unlock();
 		}
+	}
+
+	@Nullable
+	private List<Record> search(@Nonnull Query query) throws IOException {
+		return withIndex(index -> {
+			index.manager.maybeRefresh();
+			IndexSearcher searcher = index.manager.acquire();
+			try {
+				RecordCollector collector = new RecordCollector(getMinIndexTime());
+				searcher.search(query, collector);
+				return collector.isStale() ? null : collector.getRecords();
+			} finally {
+				index.manager.release(searcher);
+			}
+		});
+	}
+
+	/**
+	 * Checks for a marker on any of the terms that is new enough for maxAge.
+	 */
+	private boolean isMarked(@Nonnull List<Term> terms) throws IOException {
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+		terms.forEach(term -> builder.add(new TermQuery(term), Occur.SHOULD));
+
+		return withIndex(index -> {
+			index.manager.maybeRefresh();
+			IndexSearcher searcher = index.manager.acquire();
+			try {
+				MarkerCollector collector = new MarkerCollector(getMinIndexTime());
+				searcher.search(builder.build(), collector);
+				return collector.found;
+			} finally {
+				index.manager.release(searcher);
+			}
+		});
+	}
+
+	@Nonnull
+	private List<Term> listMarker(@Nonnull String path) {
+		List<Term> terms = treeMarker(path);
+		terms.add(RecordDoc.getTermForMarker(RecordDoc.MARKER_LIST, path));
+		return terms;
+	}
 
-		return null;
+	@Nonnull
+	private List<Term> treeMarker(@Nonnull String path) {
+		List<Term> terms = new ArrayList<>();
+		terms.add(RecordDoc.getTermForMarker(RecordDoc.MARKER_TREE, path));
+		RecordDoc.getAncestors(path).forEach(ancestor ->
+				terms.add(RecordDoc.getTermForMarker(RecordDoc.MARKER_TREE, ancestor)));
+		return terms;
+	}
+
+	private long getMinIndexTime() {
+		return maxAge > -1 ? System.currentTimeMillis() - maxAge : Long.MIN_VALUE;
+	}
+
+	@Nonnull
+	private static List<Record> existing(@Nonnull List<Record> records) {
+		return records.stream().filter(Record::exists).collect(toList());
 	}
 
 	@Nonnull
 	private Record writeRecord(@Nonnull Record record) {
 		RecordDoc recordDoc = RecordDoc.create(record, System.currentTimeMillis());
 		try {
-			writer.updateDocument(recordDoc.getTerm(), recordDoc.getDocument());
+			withIndex(index -> index.writer.updateDocument(recordDoc.getTerm(), recordDoc.getDocument()));
 		} catch (IOException e) {
 			log.warn("failed to update document: {}", record, e);
 		}
 		return record;
 	}
 
+	private void writeMarker(@Nonnull String field, @Nonnull String path) {
+		try {
+			Document doc = RecordDoc.createMarker(field, path, System.currentTimeMillis());
+			withIndex(index -> index.writer.updateDocument(RecordDoc.getTermForMarker(field, path), doc));
+		} catch (IOException e) {
+			log.warn("failed to update marker: {} {}", field, path, e);
+		}
+	}
+
 	private void deleteRecord(@Nonnull String path) throws IOException {
-		writer.deleteDocuments(RecordDoc.getTermForPath(path));
+		withIndex(index -> {
+			journal(path);
+			return index.writer.deleteDocuments(RecordDoc.getTermForPath(path));
+		});
+	}
+
+	/**
+	 * Drops the path's subtree and every marker that could claim to cover the path, for changes the index can't
+	 * follow record by record.
+	 */
+	private void deleteIndexTree(@Nonnull String path) throws IOException {
+		Term[] terms = getTermsForTree(path);
+		withIndex(index -> {
+			journal(path);
+			return index.writer.deleteDocuments(terms);
+		});
+	}
+
+	@Nonnull
+	private Term[] getTermsForTree(@Nonnull String path) {
+		String treePath = RecordDoc.getTermForSubtree(path).text();
+		List<Term> terms = listMarker(treePath);
+		terms.add(RecordDoc.getTermForMarker(RecordDoc.MARKER_LIST, RecordPath.getFolder(treePath)));
+		terms.add(RecordDoc.getTermForPath(path));
+		terms.add(RecordDoc.getTermForSubtree(treePath));
+		terms.add(RecordDoc.getTermForMarkerSubtree(treePath));
+		return terms.toArray(new Term[0]);
+	}
+
+	/**
+	 * Notes a changed path for a build in progress. Called under the read lock, so nothing is journaled while the
+	 * swap applies the journal.
+	 */
+	private void journal(@Nonnull String path) {
+		Set<String> journal = buildJournal;
+		if (journal != null) {
+			journal.add(path);
+		}
 	}
 
 	@Override
@@ -186,7 +434,7 @@ public class LuceneFiler extends DecoratedFiler {
 			@Override
 			public void close() throws IOException {
 				super.close();
-				deleteRecord(path);
+				writeRecord(LuceneFiler.super.getRecord(path));
 			}
 		};
 	}
@@ -195,12 +443,104 @@ public class LuceneFiler extends DecoratedFiler {
 	public void setFileTime(@Nonnull String path, long time) throws IOException {
 		deleteRecord(path);
 		super.setFileTime(path, time);
+		writeRecord(super.getRecord(path));
+	}
+
+	@Override
+	public void deleteFile(@Nonnull String path) throws IOException {
+		super.deleteFile(path);
+		deleteRecord(path);
+	}
+
+	@Override
+	public void renameFile(@Nonnull String oldPath, @Nonnull String newPath) throws IOException {
+		super.renameFile(oldPath, newPath);
+		deleteIndexTree(oldPath);
+		deleteIndexTree(newPath);
+	}
+
+	@Override
+	public void createDirs(@Nonnull String path) throws IOException {
+		boolean exists = getRecord(path).exists();
+		super.createDirs(path);
+		if (!exists) {
+			deleteIndexTree(path);
+		}
+	}
+
+	@Override
+	public void deleteDir(@Nonnull String path) throws IOException {
+		super.deleteDir(path);
+		deleteIndexTree(path);
 	}
 
 	@Override
 	public void close() throws IOException {
 		super.close();
-		thread.close();
-		writer.close();
+		lock.writeLock().lock();
+		try {
+			index.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static class Index implements Closeable {
+		private final IndexWriter writer;
+		private final ReferenceManager<IndexSearcher> manager;
+		private final ControlledRealTimeReopenThread<IndexSearcher> thread;
+
+		private Index(@Nonnull File indexDir, @Nonnull Config config) throws IOException {
+			double maxMergeMb = config.getDouble("index.maxMergeMb", 4);
+			double maxCachedMb = config.getDouble("index.maxCacheMb", 64);
+			long targetMaxStale = config.getTime("index.targetMaxStale", "5s");
+			long targetMinStale = config.getTime("index.targetMinStale", "1s");
+
+			Directory dir = FSDirectory.open(indexDir.toPath());
+			NRTCachingDirectory cachingDir = new NRTCachingDirectory(dir, maxMergeMb, maxCachedMb);
+			IndexWriterConfig writerConfig = new IndexWriterConfig(null);
+			writerConfig.setOpenMode(OpenMode.CREATE_OR_APPEND);
+
+			writer = new IndexWriter(cachingDir, writerConfig);
+			manager = new SearcherManager(writer, true, true, new SearcherFactory());
+			thread = new ControlledRealTimeReopenThread<>(writer, manager, targetMaxStale, targetMinStale);
+			thread.start();
+		}
+
+		@Override
+		public void close() throws IOException {
+			thread.close();
+			manager.close();
+			writer.close();
+		}
+	}
+
+	private static class MarkerCollector extends SimpleCollector {
+		private final long minIndexTime;
+		private NumericDocValues indexTimes;
+		private boolean found;
+
+		private MarkerCollector(long minIndexTime) {
+			this.minIndexTime = minIndexTime;
+		}
+
+		@Override
+		protected void doSetNextReader(@Nonnull LeafReaderContext context) throws IOException {
+			// null for markers indexed without doc values, which then never count as found
+			indexTimes = context.reader().getNumericDocValues(RecordDoc.INDEX_TIME);
+		}
+
+		@Override
+		public void collect(int doc) throws IOException {
+			if (indexTimes != null && indexTimes.advanceExact(doc) && indexTimes.longValue() >= minIndexTime) {
+				found = true;
+			}
+		}
+
+		@Override
+		@Nonnull
+		public ScoreMode scoreMode() {
+			return ScoreMode.COMPLETE_NO_SCORES;
+		}
 	}
 }
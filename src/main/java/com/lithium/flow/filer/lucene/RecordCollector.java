@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.filer.lucene;
+
+import static com.lithium.flow.filer.lucene.RecordDoc.INDEX_TIME;
+import static com.lithium.flow.filer.lucene.RecordDoc.RECORD_DIR;
+import static com.lithium.flow.filer.lucene.RecordDoc.RECORD_PATH;
+import static com.lithium.flow.filer.lucene.RecordDoc.RECORD_SIZE;
+import static com.lithium.flow.filer.lucene.RecordDoc.RECORD_TIME;
+import static com.lithium.flow.filer.lucene.RecordDoc.RECORD_URI;
+
+import com.lithium.flow.filer.Record;
+import com.lithium.flow.filer.RecordList;
+import com.lithium.flow.filer.RecordPath;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+/**
+ * Collects matching records straight from doc values. Documents indexed without them, such as those written by
+ * older versions, are counted as stale so callers fall back to the delegate and reindex them.
+ *
+ * @author Matt Ayres
+ */
+public class RecordCollector extends SimpleCollector {
+	private final RecordList records = new RecordList();
+	private final Map<String, URI> uris = new HashMap<>();
+	private final long minIndexTime;
+	private int stale;
+
+	private SortedDocValues uriValues;
+	private BinaryDocValues pathValues;
+	private NumericDocValues timeValues;
+	private NumericDocValues sizeValues;
+	private NumericDocValues dirValues;
+	private NumericDocValues indexTimeValues;
+
+	public RecordCollector(long minIndexTime) {
+		this.minIndexTime = minIndexTime;
+	}
+
+	@Override
+	protected void doSetNextReader(@Nonnull LeafReaderContext context) throws IOException {
+		// the raw getters return null for fields indexed without doc values, where DocValues throws
+		LeafReader reader = context.reader();
+		uriValues = reader.getSortedDocValues(RECORD_URI);
+		pathValues = reader.getBinaryDocValues(RECORD_PATH);
+		timeValues = reader.getNumericDocValues(RECORD_TIME);
+		sizeValues = reader.getNumericDocValues(RECORD_SIZE);
+		dirValues = reader.getNumericDocValues(RECORD_DIR);
+		indexTimeValues = reader.getNumericDocValues(INDEX_TIME);
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		if (uriValues == null || pathValues == null || timeValues == null || sizeValues == null || dirValues == null
+				|| indexTimeValues == null) {
+			stale++;
+			return;
+		}
+
+		if (!uriValues.advanceExact(doc) || !pathValues.advanceExact(doc) || !timeValues.advanceExact(doc)
+				|| !sizeValues.advanceExact(doc) || !dirValues.advanceExact(doc) || !indexTimeValues.advanceExact(doc)
+				|| indexTimeValues.longValue() < minIndexTime) {
+			stale++;
+			return;
+		}
+
+		URI uri = uris.computeIfAbsent(uriValues.binaryValue().utf8ToString(), URI::create);
+		RecordPath path = RecordPath.from(pathValues.binaryValue().utf8ToString());
+		records.add(new Record(uri, path, timeValues.longValue(), sizeValues.longValue(), dirValues.longValue() == 1));
+	}
+
+	@Override
+	@Nonnull
+	public ScoreMode scoreMode() {
+		return ScoreMode.COMPLETE_NO_SCORES;
+	}
+
+	@Nonnull
+	public List<Record> getRecords() {
+		return records;
+	}
+
+	public boolean isStale() {
+		return stale > 0;
+	}
+}
@@ -22,28 +22,45 @@ import static org.apache.lucene.document.Field.Store;
 import com.lithium.flow.filer.Record;
 import com.lithium.flow.filer.RecordPath;
 
-import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
 
 /**
+ * Indexes a record with terms for its path, parent and every ancestor dir, points for its time and size, and doc
+ * values for everything needed to rebuild it, so searches never load stored fields.
+ *
  * @author Matt Ayres
  */
 public class RecordDoc {
 	public static final String RECORD_URI = "record.uri";
 	public static final String RECORD_PATH = "record.path";
 	public static final String RECORD_PARENT = "record.parent";
+	public static final String RECORD_ANCESTOR = "record.ancestor";
 	public static final String RECORD_NAME = "record.name";
 	public static final String RECORD_TIME = "record.time";
 	public static final String RECORD_SIZE = "record.size";
 	public static final String RECORD_DIR = "record.dir";
 	public static final String INDEX_TIME = "index.time";
+	public static final String MARKER_LIST = "marker.list";
+	public static final String MARKER_TREE = "marker.tree";
+	public static final String MARKER_ANCESTOR = "marker.ancestor";
 
 	private final Record record;
 	private final Document doc;
@@ -79,32 +96,56 @@ public class RecordDoc {
 		checkNotNull(record);
 
 		Document doc = new Document();
-		doc.add(new StringField(RECORD_URI, record.getUri().toString(), Store.YES));
-		doc.add(new StringField(RECORD_PATH, record.getPath(), Store.YES));
-		doc.add(new StringField(RECORD_PARENT, record.getFolder(), Store.YES));
-		doc.add(new StringField(RECORD_NAME, record.getName(), Store.YES));
-		doc.add(new StringField(RECORD_TIME, String.valueOf(record.getTime()), Store.YES));
-		doc.add(new StringField(RECORD_SIZE, String.valueOf(record.getSize()), Store.YES));
-		doc.add(new StringField(RECORD_DIR, String.valueOf(record.isDir()), Store.YES));
-		doc.add(new StringField(INDEX_TIME, String.valueOf(indexTime), Store.YES));
+		doc.add(new StringField(RECORD_URI, record.getUri().toString(), Store.NO));
+		doc.add(new SortedDocValuesField(RECORD_URI, new BytesRef(record.getUri().toString())));
+		doc.add(new StringField(RECORD_PATH, record.getPath(), Store.NO));
+		doc.add(new BinaryDocValuesField(RECORD_PATH, new BytesRef(record.getPath())));
+		doc.add(new StringField(RECORD_PARENT, record.getFolder(), Store.NO));
+		for (String ancestor : getAncestors(record.getPath())) {
+			doc.add(new StringField(RECORD_ANCESTOR, ancestor, Store.NO));
+		}
+		doc.add(new StringField(RECORD_NAME, record.getName(), Store.NO));
+		doc.add(new LongPoint(RECORD_TIME, record.getTime()));
+		doc.add(new NumericDocValuesField(RECORD_TIME, record.getTime()));
+		doc.add(new LongPoint(RECORD_SIZE, record.getSize()));
+		doc.add(new NumericDocValuesField(RECORD_SIZE, record.getSize()));
+		doc.add(new StringField(RECORD_DIR, String.valueOf(record.isDir()), Store.NO));
+		doc.add(new NumericDocValuesField(RECORD_DIR, record.isDir() ? 1 : 0));
+		doc.add(new NumericDocValuesField(INDEX_TIME, indexTime));
 
 		return new RecordDoc(record, doc, indexTime);
 	}
 
+	/**
+	 * Creates a marker noting that the dir listing ({@link #MARKER_LIST}) or the whole subtree ({@link #MARKER_TREE})
+	 * of the path was indexed at the index time.
+	 */
 	@Nonnull
-	public static RecordDoc create(@Nonnull Document doc) {
-		checkNotNull(doc);
-
-		URI uri = URI.create(doc.get(RECORD_URI));
-		String parent = doc.get(RECORD_PARENT);
-		String name = doc.get(RECORD_NAME);
-		long time = Long.parseLong(doc.get(RECORD_TIME));
-		long size = Long.parseLong(doc.get(RECORD_SIZE));
-		boolean dir = Boolean.parseBoolean(doc.get(RECORD_DIR));
-		long indexTime = Long.parseLong(doc.get(INDEX_TIME));
-
-		Record record = new Record(uri, RecordPath.from(parent, name), time, size, dir);
-		return new RecordDoc(record, doc, indexTime);
+	public static Document createMarker(@Nonnull String field, @Nonnull String path, long indexTime) {
+		checkNotNull(field);
+		checkNotNull(path);
+
+		Document doc = new Document();
+		doc.add(new StringField(field, path, Store.NO));
+		doc.add(new BinaryDocValuesField(field, new BytesRef(path)));
+		for (String ancestor : getAncestors(path)) {
+			doc.add(new StringField(MARKER_ANCESTOR, ancestor, Store.NO));
+		}
+		doc.add(new NumericDocValuesField(INDEX_TIME, indexTime));
+		return doc;
+	}
+
+	@Nonnull
+	public static List<String> getAncestors(@Nonnull String path) {
+		checkNotNull(path);
+
+		List<String> ancestors = new ArrayList<>();
+		String folder = path;
+		while (!folder.isEmpty()) {
+			folder = RecordPath.getFolder(folder);
+			ancestors.add(folder);
+		}
+		return ancestors;
 	}
 
 	@Nonnull
@@ -117,6 +158,42 @@ public class RecordDoc {
 		return new Term(RECORD_PARENT, parent);
 	}
 
+	@Nonnull
+	public static Term getTermForSubtree(String path) {
+		return new Term(RECORD_ANCESTOR, path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+	}
+
+	@Nonnull
+	public static Term getTermForDir(boolean dir) {
+		return new Term(RECORD_DIR, String.valueOf(dir));
+	}
+
+	@Nonnull
+	public static Term getTermForMarker(String field, String path) {
+		return new Term(field, path);
+	}
+
+	@Nonnull
+	public static Term getTermForMarkerSubtree(String path) {
+		return new Term(MARKER_ANCESTOR, path);
+	}
+
+	@Nonnull
+	public static Query getQueryForTime(String path, long minTime, long maxTime) {
+		return new BooleanQuery.Builder()
+				.add(new TermQuery(getTermForSubtree(path)), Occur.FILTER)
+				.add(LongPoint.newRangeQuery(RECORD_TIME, minTime, maxTime), Occur.FILTER)
+				.build();
+	}
+
+	@Nonnull
+	public static Query getQueryForSize(String path, long minSize, long maxSize) {
+		return new BooleanQuery.Builder()
+				.add(new TermQuery(getTermForSubtree(path)), Occur.FILTER)
+				.add(LongPoint.newRangeQuery(RECORD_SIZE, minSize, maxSize), Occur.FILTER)
+				.build();
+	}
+
 	@Override
 	@Nonnull
 	public String toString() {
@@ -22,12 +22,15 @@ import com.lithium.flow.config.Config;
 import com.lithium.flow.filer.DecoratedFiler;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
 
 import javax.annotation.Nonnull;
 
+import org.apache.commons.io.IOUtils;
+
 /**
  * @author Matt Ayres
  */
@@ -41,6 +44,15 @@ public class ClientRemoteFiler extends DecoratedFiler implements RemoteFiler {
 		bypassDelegateFind = true;
 	}
 
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		// arrays are copied by value over rmi, so read through a remote stream instead
+		try (InputStream in = readRange(path, position, len)) {
+			int count = IOUtils.read(in, b, off, len);
+			return count == 0 && len > 0 ? -1 : count;
+		}
+	}
+
 	@Nonnull
 	private static RemoteFiler lookup(@Nonnull String host, int port) throws IOException {
 		checkNotNull(host);
@@ -31,7 +31,8 @@ public class RemoteFilerMain {
 		setProperty("java.rmi.server.hostname", config, "rmi.hostname");
 		setProperty("com.healthmarketscience.rmiio.exporter.port", config, "rmiio.port");
 		Filer filer = Filers.buildFiler(config);
-		new ServerRemoteFiler(filer, config.getInt("rmi.port", 3499), config.getInt("rmi.localport", 0));
+		new ServerRemoteFiler(filer, config.getInt("rmi.port", 3499), config.getInt("rmi.localport", 0),
+				config.getBoolean("rmi.compact", false));
 	}
 
 	private static void setProperty(String property, Config config, String key) {
@@ -18,6 +18,8 @@ package com.lithium.flow.filer.remote;
 
 import com.lithium.flow.filer.DecoratedFiler;
 import com.lithium.flow.filer.Filer;
+import com.lithium.flow.filer.Record;
+import com.lithium.flow.filer.RecordList;
 import com.lithium.flow.io.DataIo;
 import com.lithium.flow.util.Logs;
 
@@ -28,6 +30,8 @@ import java.io.Serializable;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 
@@ -39,27 +43,58 @@ import com.healthmarketscience.rmiio.SimpleRemoteInputStream;
 import com.healthmarketscience.rmiio.SimpleRemoteOutputStream;
 
 /**
+ * Serves a filer over RMI.
+ * <p>
+ * With compact listings, records are sent as a {@link RecordList} in the {@link com.lithium.flow.filer.RecordWriter}
+ * form, which clients can only read if they have those classes too, so it is off by default for mixed-version
+ * deployments.
+ *
  * @author Matt Ayres
  */
 public class ServerRemoteFiler extends DecoratedFiler implements RemoteFiler, Serializable {
 	private static final Logger log = Logs.getLogger();
 	private static final long serialVersionUID = 4838720717701156008L;
 
+	private final boolean compact;
+
 	public ServerRemoteFiler(@Nonnull Filer delegate, int port, int localPort) throws RemoteException {
+		this(delegate, port, localPort, false);
+	}
+
+	public ServerRemoteFiler(@Nonnull Filer delegate, int port, int localPort, boolean compact)
+			throws RemoteException {
 		super(delegate);
 		bypassDelegateFind = true;
+		this.compact = compact;
 
 		log.info("port: {}, local port: {}", port, localPort);
 		UnicastRemoteObject.exportObject(this, localPort);
 		LocateRegistry.createRegistry(port).rebind(RemoteFiler.BIND, this);
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> listRecords(@Nonnull String path) throws IOException {
+		List<Record> records = super.listRecords(path);
+		if (compact) {
+			return RecordList.of(records);
+		}
+		// delegates like CachedFiler may hand out record lists, which older clients can't read
+		return records instanceof RecordList ? new ArrayList<>(records) : records;
+	}
+
 	@Override
 	@Nonnull
 	public InputStream readFile(@Nonnull String path) throws IOException {
 		return new SerializableInputStream(new SimpleRemoteInputStream(super.readFile(path)));
 	}
 
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		return new SerializableInputStream(new SimpleRemoteInputStream(super.readRange(path, offset, length)));
+	}
+
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
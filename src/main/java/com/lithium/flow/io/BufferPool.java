@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.InterruptedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Pool of reusable direct {@link ByteBuffer}s of a fixed size, bounded by a total memory budget.
+ * Callers block in {@link #acquire} while the budget is exhausted. Idle buffers stay allocated for reuse until
+ * {@link #clear()} drops them.
+ * <p>
+ * Each buffer is leased to an owner, the object through which the buffer is used. If the owner is garbage
+ * collected without the buffer being released, the buffer goes back to the pool the next time one is acquired,
+ * so a stream that is never closed does not hold its share of the budget forever.
+ *
+ * @author Matt Ayres
+ */
+public class BufferPool {
+	private final int bufferSize;
+	private final Semaphore semaphore;
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+	private final Map<ByteBuffer, Lease> leases = Collections.synchronizedMap(new IdentityHashMap<>());
+	private final ReferenceQueue<Object> abandoned = new ReferenceQueue<>();
+
+	public BufferPool(int bufferSize, long maxBytes) {
+		checkArgument(bufferSize > 0, "bufferSize must be positive: %s", bufferSize);
+		checkArgument(maxBytes >= bufferSize, "maxBytes must fit at least one buffer: %s", maxBytes);
+
+		this.bufferSize = bufferSize;
+		semaphore = new Semaphore((int) Math.min(maxBytes / bufferSize, Integer.MAX_VALUE));
+	}
+
+	@Nonnull
+	public ByteBuffer acquire(@Nonnull Object owner) throws InterruptedIOException {
+		checkNotNull(owner);
+		try {
+			reclaim();
+			while (!semaphore.tryAcquire(1, TimeUnit.SECONDS)) {
+				reclaim();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting for buffer");
+		}
+
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(bufferSize);
+		}
+		buffer.clear();
+		leases.put(buffer, new Lease(owner, buffer, abandoned));
+		return buffer;
+	}
+
+	/**
+	 * Hands a leased buffer over to a new owner, such as a stream that reads it after its writer is done with it.
+	 */
+	public void transfer(@Nonnull ByteBuffer buffer, @Nonnull Object owner) {
+		checkNotNull(owner);
+		synchronized (leases) {
+			Lease lease = leases.get(buffer);
+			checkArgument(lease != null, "buffer not leased from this pool");
+			lease.clear();
+			leases.put(buffer, new Lease(owner, buffer, abandoned));
+		}
+	}
+
+	/**
+	 * Returns a buffer to the pool. Releasing a buffer that is not currently leased, such as one that was
+	 * already released, does nothing, so each lease gives back exactly one permit.
+	 */
+	public void release(@Nonnull ByteBuffer buffer) {
+		Lease lease = leases.remove(buffer);
+		if (lease != null) {
+			lease.clear();
+			recycle(buffer);
+		}
+	}
+
+	/**
+	 * Drops the idle buffers so their direct memory can be reclaimed. Leased buffers are unaffected.
+	 */
+	public void clear() {
+		buffers.clear();
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public int getAvailable() {
+		return semaphore.availablePermits();
+	}
+
+	private void reclaim() {
+		Reference<?> reference;
+		while ((reference = abandoned.poll()) != null) {
+			Lease lease = (Lease) reference;
+			if (leases.remove(lease.buffer, lease)) {
+				recycle(lease.buffer);
+			}
+		}
+	}
+
+	private void recycle(@Nonnull ByteBuffer buffer) {
+		buffer.clear();
+		buffers.add(buffer);
+		semaphore.release();
+	}
+
+	private static class Lease extends PhantomReference<Object> {
+		private final ByteBuffer buffer;
+
+		private Lease(@Nonnull Object owner, @Nonnull ByteBuffer buffer, @Nonnull ReferenceQueue<Object> queue) {
+			super(owner, queue);
+			this.buffer = buffer;
+		}
+	}
+}
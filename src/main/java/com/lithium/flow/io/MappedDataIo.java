@@ -0,0 +1,485 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.lithium.flow.util.Logs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+
+/**
+ * {@link DataIo} over a memory-mapped file. The file is mapped lazily in fixed windows of up to 1 GB, and primitive
+ * reads and writes go straight to the window under the file pointer without a system call. Only values that
+ * straddle two windows fall back to copying bytes.
+ * <p>
+ * In write mode windows are mapped read-write and grown geometrically as writes pass their end, which extends the
+ * file on disk; {@link #close()} truncates it back to {@link #length()}, the highest position written. In read mode
+ * the length follows the file, so data appended by other writers becomes readable.
+ * <p>
+ * Windows are unmapped as soon as they are replaced or the file is closed, rather than whenever the garbage
+ * collector gets to them, so opening files in a loop does not pile up mappings. No buffer handed out by this class
+ * may be used after that, which is why none ever is.
+ *
+ * @author Matt Ayres
+ */
+public class MappedDataIo implements DataIo {
+	private static final Logger log = Logs.getLogger();
+	private static final int MAX_WINDOW_SHIFT = 30;
+	private static final int MIN_MAP_SIZE = 64 * 1024;
+	private static final Consumer<ByteBuffer> UNMAPPER = buildUnmapper();
+
+	private final FileChannel channel;
+	private final boolean write;
+	private final int windowShift;
+	private final long windowSize;
+	private final List<MappedByteBuffer> windows = new ArrayList<>();
+	private final byte[] scratch = new byte[8];
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long length;
+	private long fp;
+
+	public MappedDataIo(@Nonnull Path path, boolean write) throws IOException {
+		this(path, write, MAX_WINDOW_SHIFT);
+	}
+
+	public MappedDataIo(@Nonnull Path path, boolean write, int windowShift) throws IOException {
+		checkNotNull(path);
+		checkArgument(windowShift > 0 && windowShift <= MAX_WINDOW_SHIFT, "invalid window shift: %s", windowShift);
+
+		channel = write ? FileChannel.open(path, READ, WRITE, CREATE) : FileChannel.open(path, READ);
+		this.write = write;
+		this.windowShift = windowShift;
+		windowSize = 1L << windowShift;
+		length = channel.size();
+	}
+
+	@Override
+	public long getFilePointer() {
+		return fp;
+	}
+
+	@Override
+	public void seek(long pos) throws IOException {
+		if (pos < 0) {
+			throw new IOException("negative seek offset: " + pos);
+		}
+		fp = pos;
+	}
+
+	@Override
+	public long length() throws IOException {
+		if (!write) {
+			length = channel.size();
+		}
+		return length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		windows.forEach(MappedDataIo::unmap);
+		windows.clear();
+		try {
+			// mapped regions can't be truncated on every platform, so this waits until they are unmapped
+			if (write && channel.size() > length) {
+				channel.truncate(length);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Offset of pos in the window that holds it, mapping or growing that window to cover up to size bytes.
+	 */
+	private int offset(long pos, int size) throws IOException {
+		long offset = pos - windowStart;
+		if (window == null || offset < 0 || offset + size > window.limit()) {
+			int index = (int) (pos >>> windowShift);
+			windowStart = (long) index << windowShift;
+			offset = pos - windowStart;
+			long needed = Math.min(offset + size, windowSize);
+
+			while (windows.size() <= index) {
+				windows.add(null);
+			}
+			window = windows.get(index);
+			if (window == null || window.limit() < needed) {
+				MappedByteBuffer old = window;
+				window = map(windowStart, needed);
+				windows.set(index, window);
+				unmap(old);
+			}
+		}
+		return (int) offset;
+	}
+
+	@Nonnull
+	private MappedByteBuffer map(long start, long needed) throws IOException {
+		if (!write) {
+			return channel.map(READ_ONLY, start, Math.min(windowSize, length - start));
+		}
+
+		long size = MIN_MAP_SIZE;
+		while (size < needed) {
+			size <<= 1;
+		}
+		size = Math.max(size, channel.size() - start);
+		return channel.map(READ_WRITE, start, Math.min(windowSize, size));
+	}
+
+	/**
+	 * Offset of the file pointer in a window holding size more bytes, or -1 if they straddle two windows.
+	 */
+	private int readOffset(int size) throws IOException {
+		if (fp + size > length && fp + size > length()) {
+			throw new EOFException();
+		}
+		int offset = offset(fp, size);
+		return offset + size <= window.limit() ? offset : -1;
+	}
+
+	private int writeOffset(int size) throws IOException {
+		if (!write) {
+			throw new IOException("file not open for write");
+		}
+		int offset = offset(fp, size);
+		return offset + size <= window.limit() ? offset : -1;
+	}
+
+	private void advance(int count) {
+		fp += count;
+		if (fp > length) {
+			length = fp;
+		}
+	}
+
+	@Nonnull
+	private ByteBuffer readScratch(int size) throws IOException {
+		readFully(scratch, 0, size);
+		return ByteBuffer.wrap(scratch, 0, size);
+	}
+
+	@Override
+	public void readFully(@Nonnull byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(@Nonnull byte[] b, int off, int len) throws IOException {
+		if (len > 0 && fp + len > length && fp + len > length()) {
+			throw new EOFException();
+		}
+
+		while (len > 0) {
+			int offset = offset(fp, 1);
+			int count = Math.min(len, window.limit() - offset);
+			window.position(offset);
+			window.get(b, off, count);
+			fp += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public int skipBytes(int n) {
+		if (n <= 0) {
+			return 0;
+		}
+		long last = fp;
+		fp = Math.max(fp, Math.min(fp + n, length));
+		return (int) (fp - last);
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		int offset = readOffset(1);
+		fp++;
+		return window.get(offset);
+	}
+
+	@Override
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xFF;
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		int offset = readOffset(2);
+		if (offset < 0) {
+			return readScratch(2).getShort();
+		}
+		fp += 2;
+		return window.getShort(offset);
+	}
+
+	@Override
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xFFFF;
+	}
+
+	@Override
+	public char readChar() throws IOException {
+		return (char) readShort();
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		int offset = readOffset(4);
+		if (offset < 0) {
+			return readScratch(4).getInt();
+		}
+		fp += 4;
+		return window.getInt(offset);
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		int offset = readOffset(8);
+		if (offset < 0) {
+			return readScratch(8).getLong();
+		}
+		fp += 8;
+		return window.getLong(offset);
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		if (fp >= length && fp >= length()) {
+			return null;
+		}
+
+		StringBuilder input = new StringBuilder();
+		while (fp < length) {
+			int c = readUnsignedByte();
+			if (c == '\n') {
+				break;
+			} else if (c == '\r') {
+				if (fp < length && readUnsignedByte() != '\n') {
+					fp--;
+				}
+				break;
+			}
+			input.append((char) c);
+		}
+		return input.toString();
+	}
+
+	@Override
+	@Nonnull
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		int offset = writeOffset(1);
+		window.put(offset, (byte) b);
+		advance(1);
+	}
+
+	@Override
+	public void write(@Nonnull byte[] b) throws IOException {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			long windowLeft = windowSize - (fp & (windowSize - 1));
+			int count = (int) Math.min(len, windowLeft);
+			int offset = writeOffset(count);
+			window.position(offset);
+			window.put(b, off, count);
+			advance(count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public void writeBoolean(boolean v) throws IOException {
+		write(v ? 1 : 0);
+	}
+
+	@Override
+	public void writeByte(int v) throws IOException {
+		write(v);
+	}
+
+	@Override
+	public void writeShort(int v) throws IOException {
+		int offset = writeOffset(2);
+		if (offset < 0) {
+			ByteBuffer.wrap(scratch).putShort((short) v);
+			write(scratch, 0, 2);
+		} else {
+			window.putShort(offset, (short) v);
+			advance(2);
+		}
+	}
+
+	@Override
+	public void writeChar(int v) throws IOException {
+		writeShort(v);
+	}
+
+	@Override
+	public void writeInt(int v) throws IOException {
+		int offset = writeOffset(4);
+		if (offset < 0) {
+			ByteBuffer.wrap(scratch).putInt(v);
+			write(scratch, 0, 4);
+		} else {
+			window.putInt(offset, v);
+			advance(4);
+		}
+	}
+
+	@Override
+	public void writeLong(long v) throws IOException {
+		int offset = writeOffset(8);
+		if (offset < 0) {
+			ByteBuffer.wrap(scratch).putLong(v);
+			write(scratch, 0, 8);
+		} else {
+			window.putLong(offset, v);
+			advance(8);
+		}
+	}
+
+	@Override
+	public void writeFloat(float v) throws IOException {
+		writeInt(Float.floatToIntBits(v));
+	}
+
+	@Override
+	public void writeDouble(double v) throws IOException {
+		writeLong(Double.doubleToLongBits(v));
+	}
+
+	@Override
+	public void writeBytes(@Nonnull String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			write(s.charAt(i));
+		}
+	}
+
+	@Override
+	public void writeChars(@Nonnull String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			writeChar(s.charAt(i));
+		}
+	}
+
+	@Override
+	public void writeUTF(@Nonnull String s) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new DataOutputStream(baos).writeUTF(s);
+		write(baos.toByteArray());
+	}
+
+	/**
+	 * Releases a mapping right away through the buffer's cleaner, with {@code Unsafe.invokeCleaner} on Java 9 and
+	 * later and the buffer's own {@code cleaner()} on Java 8. Where neither is reachable the mapping is left to the
+	 * garbage collector.
+	 */
+	private static void unmap(@Nullable MappedByteBuffer buffer) {
+		if (buffer != null && UNMAPPER != null) {
+			try {
+				UNMAPPER.accept(buffer);
+			} catch (RuntimeException e) {
+				log.debug("failed to unmap buffer", e);
+			}
+		}
+	}
+
+	@Nullable
+	private static Consumer<ByteBuffer> buildUnmapper() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			return buffer -> invoke(invokeCleaner, unsafe, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Java 8
+		}
+
+		try {
+			Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			return buffer -> invoke(clean, invoke(cleaner, buffer, null), null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			log.debug("mapped buffers can't be unmapped explicitly", e);
+			return null;
+		}
+	}
+
+	@Nullable
+	private static Object invoke(@Nonnull Method method, @Nullable Object target, @Nullable Object arg) {
+		try {
+			return arg == null ? method.invoke(target) : method.invoke(target, arg);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.lithium.flow.util.CheckedFunction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * {@link DataIo} decorator that buffers a remote or otherwise slow delegate in a small LRU of fixed-size pages.
+ * Primitive reads and writes are served from the page under the file pointer, so the delegate only sees whole page
+ * reads and coalesced writes of dirty ranges. Dirty pages are written back when they are evicted, when a seek leaves
+ * the current page, and on {@link #close()}.
+ * <p>
+ * When a streamer is given, a run of misses on consecutive pages switches page loads over to a stream opened at the
+ * first of them, letting the delegate pipeline read-ahead instead of paying a round trip per page. The stream is
+ * dropped on the first out-of-order miss or any write back.
+ *
+ * @author Matt Ayres
+ */
+public class PagedDataIo implements DataIo {
+	private final DataIo delegate;
+	private final int pageShift;
+	private final int pageSize;
+	private final int maxPages;
+	private final CheckedFunction<Long, InputStream, IOException> streamer;
+	private final Map<Long, Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+	private final byte[] scratch = new byte[8];
+	private Page page;
+	private long storedLength;
+	private long length;
+	private long fp;
+	private long lastMiss = -2;
+	private InputStream stream;
+	private long streamIndex;
+
+	public PagedDataIo(@Nonnull DataIo delegate, int pageSize, int maxPages) throws IOException {
+		this(delegate, pageSize, maxPages, null);
+	}
+
+	public PagedDataIo(@Nonnull DataIo delegate, int pageSize, int maxPages,
+			@Nullable CheckedFunction<Long, InputStream, IOException> streamer) throws IOException {
+		checkArgument(Integer.bitCount(pageSize) == 1, "page size must be a power of two: %s", pageSize);
+		checkArgument(maxPages > 0, "invalid max pages: %s", maxPages);
+
+		this.delegate = checkNotNull(delegate);
+		this.pageSize = pageSize;
+		this.maxPages = maxPages;
+		this.streamer = streamer;
+		pageShift = Integer.numberOfTrailingZeros(pageSize);
+		storedLength = delegate.length();
+		length = storedLength;
+	}
+
+	@Override
+	public long getFilePointer() {
+		return fp;
+	}
+
+	@Override
+	public void seek(long pos) throws IOException {
+		if (pos < 0) {
+			throw new IOException("negative seek offset: " + pos);
+		}
+		if (page != null && page.index != pos >>> pageShift) {
+			flush();
+		}
+		fp = pos;
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			pages.clear();
+			page = null;
+			closeStream();
+			delegate.close();
+		}
+	}
+
+	/**
+	 * Writes back all dirty pages in file order.
+	 */
+	public void flush() throws IOException {
+		List<Page> dirty = new ArrayList<>();
+		for (Page cached : pages.values()) {
+			if (cached.dirtyEnd > 0) {
+				dirty.add(cached);
+			}
+		}
+		dirty.sort((page1, page2) -> Long.compare(page1.index, page2.index));
+		for (Page cached : dirty) {
+			store(cached);
+		}
+	}
+
+	/**
+	 * Page holding pos, loaded from the delegate unless load is false and the page is not yet cached.
+	 */
+	@Nonnull
+	private Page page(long pos, boolean load) throws IOException {
+		long index = pos >>> pageShift;
+		if (page != null && page.index == index) {
+			return page;
+		}
+
+		page = pages.get(index);
+		if (page == null) {
+			page = new Page(index, new byte[pageSize]);
+			if (load) {
+				load(page);
+			}
+			pages.put(index, page);
+			evict();
+		}
+		return page;
+	}
+
+	private void load(@Nonnull Page page) throws IOException {
+		long start = page.index << pageShift;
+		int size = (int) Math.max(0, Math.min(pageSize, storedLength - start));
+		if (size == 0) {
+			return;
+		}
+
+		if (streamer != null && stream == null && page.index == lastMiss + 1) {
+			stream = streamer.apply(start);
+			streamIndex = page.index;
+		}
+		lastMiss = page.index;
+
+		if (stream != null && page.index == streamIndex) {
+			ByteStreams.readFully(stream, page.data, 0, size);
+			streamIndex++;
+		} else {
+			closeStream();
+			delegate.seek(start);
+			delegate.readFully(page.data, 0, size);
+		}
+	}
+
+	private void evict() throws IOException {
+		Iterator<Page> it = pages.values().iterator();
+		while (pages.size() > maxPages) {
+			Page eldest = it.next();
+			if (eldest.dirtyEnd > 0) {
+				store(eldest);
+			}
+			it.remove();
+		}
+	}
+
+	private void store(@Nonnull Page page) throws IOException {
+		closeStream();
+		long start = page.index << pageShift;
+		delegate.seek(start + page.dirtyStart);
+		delegate.write(page.data, page.dirtyStart, page.dirtyEnd - page.dirtyStart);
+		storedLength = Math.max(storedLength, start + page.dirtyEnd);
+		page.dirtyStart = 0;
+		page.dirtyEnd = 0;
+	}
+
+	private void closeStream() throws IOException {
+		if (stream != null) {
+			InputStream closing = stream;
+			stream = null;
+			closing.close();
+		}
+	}
+
+	/**
+	 * Offset of the file pointer in its page if size more bytes fit in it, or -1 if they straddle two pages.
+	 */
+	private int readOffset(int size) throws IOException {
+		if (fp + size > length) {
+			throw new EOFException();
+		}
+		page(fp, true);
+		int offset = (int) (fp & (pageSize - 1));
+		return offset + size <= pageSize ? offset : -1;
+	}
+
+	private int writeOffset(int size) throws IOException {
+		page(fp, true);
+		int offset = (int) (fp & (pageSize - 1));
+		return offset + size <= pageSize ? offset : -1;
+	}
+
+	private void advance(int offset, int count) {
+		page.dirty(offset, offset + count);
+		fp += count;
+		if (fp > length) {
+			length = fp;
+		}
+	}
+
+	@Nonnull
+	private ByteBuffer readScratch(int size) throws IOException {
+		readFully(scratch, 0, size);
+		return ByteBuffer.wrap(scratch, 0, size);
+	}
+
+	@Override
+	public void readFully(@Nonnull byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(@Nonnull byte[] b, int off, int len) throws IOException {
+		if (len > 0 && fp + len > length) {
+			throw new EOFException();
+		}
+
+		while (len > 0) {
+			page(fp, true);
+			int offset = (int) (fp & (pageSize - 1));
+			int count = Math.min(len, pageSize - offset);
+			System.arraycopy(page.data, offset, b, off, count);
+			fp += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public int skipBytes(int n) {
+		if (n <= 0) {
+			return 0;
+		}
+		long last = fp;
+		fp = Math.max(fp, Math.min(fp + n, length));
+		return (int) (fp - last);
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		int offset = readOffset(1);
+		fp++;
+		return page.data[offset];
+	}
+
+	@Override
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xFF;
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		int offset = readOffset(2);
+		if (offset < 0) {
+			return readScratch(2).getShort();
+		}
+		fp += 2;
+		return page.buffer.getShort(offset);
+	}
+
+	@Override
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xFFFF;
+	}
+
+	@Override
+	public char readChar() throws IOException {
+		return (char) readShort();
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		int offset = readOffset(4);
+		if (offset < 0) {
+			return readScratch(4).getInt();
+		}
+		fp += 4;
+		return page.buffer.getInt(offset);
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		int offset = readOffset(8);
+		if (offset < 0) {
+			return readScratch(8).getLong();
+		}
+		fp += 8;
+		return page.buffer.getLong(offset);
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		if (fp >= length) {
+			return null;
+		}
+
+		StringBuilder input = new StringBuilder();
+		while (fp < length) {
+			int c = readUnsignedByte();
+			if (c == '\n') {
+				break;
+			} else if (c == '\r') {
+				if (fp < length && readUnsignedByte() != '\n') {
+					fp--;
+				}
+				break;
+			}
+			input.append((char) c);
+		}
+		return input.toString();
+	}
+
+	@Override
+	@Nonnull
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		int offset = writeOffset(1);
+		page.data[offset] = (byte) b;
+		advance(offset, 1);
+	}
+
+	@Override
+	public void write(@Nonnull byte[] b) throws IOException {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int offset = (int) (fp & (pageSize - 1));
+			int count = Math.min(len, pageSize - offset);
+			page(fp, count < pageSize);
+			System.arraycopy(b, off, page.data, offset, count);
+			advance(offset, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public void writeBoolean(boolean v) throws IOException {
+		write(v ? 1 : 0);
+	}
+
+	@Override
+	public void writeByte(int v) throws IOException {
+		write(v);
+	}
+
+	@Override
+	public void writeShort(int v) throws IOException {
+		int offset = writeOffset(2);
+		if (offset < 0) {
+			ByteBuffer.wrap(scratch).putShort((short) v);
+			write(scratch, 0, 2);
+		} else {
+			page.buffer.putShort(offset, (short) v);
+			advance(offset, 2);
+		}
+	}
+
+	@Override
+	public void writeChar(int v) throws IOException {
+		writeShort(v);
+	}
+
+	@Override
+	public void writeInt(int v) throws IOException {
+		int offset = writeOffset(4);
+		if (offset < 0) {
+			ByteBuffer.wrap(scratch).putInt(v);
+			write(scratch, 0, 4);
+		} else {
+			page.buffer.putInt(offset, v);
+			advance(offset, 4);
+		}
+	}
+
+	@Override
+	public void writeLong(long v) throws IOException {
+		int offset = writeOffset(8);
+		if (offset < 0) {
+			ByteBuffer.wrap(scratch).putLong(v);
+			write(scratch, 0, 8);
+		} else {
+			page.buffer.putLong(offset, v);
+			advance(offset, 8);
+		}
+	}
+
+	@Override
+	public void writeFloat(float v) throws IOException {
+		writeInt(Float.floatToIntBits(v));
+	}
+
+	@Override
+	public void writeDouble(double v) throws IOException {
+		writeLong(Double.doubleToLongBits(v));
+	}
+
+	@Override
+	public void writeBytes(@Nonnull String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			write(s.charAt(i));
+		}
+	}
+
+	@Override
+	public void writeChars(@Nonnull String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			writeChar(s.charAt(i));
+		}
+	}
+
+	@Override
+	public void writeUTF(@Nonnull String s) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new DataOutputStream(baos).writeUTF(s);
+		write(baos.toByteArray());
+	}
+
+	private static class Page {
+		private final long index;
+		private final byte[] data;
+		private final ByteBuffer buffer;
+		private int dirtyStart;
+		private int dirtyEnd;
+
+		private Page(long index, @Nonnull byte[] data) {
+			this.index = index;
+			this.data = data;
+			buffer = ByteBuffer.wrap(data);
+		}
+
+		private void dirty(int start, int end) {
+			if (dirtyEnd == 0) {
+				dirtyStart = start;
+				dirtyEnd = end;
+			} else {
+				dirtyStart = Math.min(dirtyStart, start);
+				dirtyEnd = Math.max(dirtyEnd, end);
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.runner;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.lithium.flow.filer.Filer;
+import com.lithium.flow.filer.Record;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Content hashes of local files, persisted between runs and keyed by path, size and modification time so that
+ * unchanged files are not hashed again.
+ *
+ * @author Matt Ayres
+ */
+public class HashCache {
+	private final Filer filer;
+	private final Path path;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Striped<Lock> locks = Striped.lock(64);
+	private volatile boolean dirty;
+
+	public HashCache(@Nonnull Filer filer, @Nonnull File file) throws IOException {
+		this.filer = checkNotNull(filer);
+		path = checkNotNull(file).toPath();
+
+		if (file.exists()) {
+			Splitter splitter = Splitter.on('\t').limit(4);
+			for (String line : Files.readAllLines(path, UTF_8)) {
+				Iterator<String> it = splitter.split(line).iterator();
+				String hash = it.next();
+				long size = Long.parseLong(it.next());
+				long time = Long.parseLong(it.next());
+				entries.put(it.next(), new Entry(size, time, hash));
+			}
+		}
+	}
+
+	@Nonnull
+	public String getHash(@Nonnull Record record) throws IOException {
+		String recordPath = record.getPath();
+		Lock lock = locks.get(recordPath);
+		lock.lock();
+		try {
+			Entry entry = entries.get(recordPath);
+			if (entry == null || entry.size != record.getSize() || entry.time != record.getTime()) {
+				String hash = filer.getHash(recordPath, "sha256", "base16.lowerCase");
+				entry = new Entry(record.getSize(), record.getTime(), hash);
+				entries.put(recordPath, entry);
+				dirty = true;
+			}
+			return entry.hash;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void save() throws IOException {
+		if (!dirty) {
+			return;
+		}
+		dirty = false;
+
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tempPath, UTF_8)) {
+			for (Map.Entry<String, Entry> mapEntry : new TreeMap<>(entries).entrySet()) {
+				Entry entry = mapEntry.getValue();
+				writer.write(entry.hash + "\t" + entry.size + "\t" + entry.time + "\t" + mapEntry.getKey());
+				writer.newLine();
+			}
+		}
+		Files.move(tempPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+	}
+
+	private static class Entry {
+		private final long size;
+		private final long time;
+		private final String hash;
+
+		private Entry(long size, long time, @Nonnull String hash) {
+			this.size = size;
+			this.time = time;
+			this.hash = hash;
+		}
+	}
+}
@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.lithium.flow.access.Access;
 import com.lithium.flow.config.Config;
 import com.lithium.flow.filer.Filer;
+import com.lithium.flow.filer.RecordPath;
 import com.lithium.flow.shell.Shell;
 
 import java.io.IOException;
@@ -34,6 +35,16 @@ public interface JarProvider {
 	boolean copy(@Nonnull String path, @Nonnull Shell shell, @Nonnull Filer destFiler, @Nonnull String destDir)
 			throws IOException;
 
+	/**
+	 * Adds the jar to the host's shared store unless some deployment already stored the same hash there. Returns
+	 * false if this provider could not supply the jar.
+	 */
+	default boolean store(@Nonnull String path, @Nonnull String hash, @Nonnull Shell shell, @Nonnull Filer destFiler,
+			@Nonnull JarStore store) throws IOException {
+		return store.contains(hash)
+				|| store.put(hash, RecordPath.getName(path), tempDir -> copy(path, shell, destFiler, tempDir));
+	}
+
 	@Nonnull
 	static JarProvider build(@Nonnull Config config, @Nonnull Access access, @Nonnull Filer filer) {
 		checkNotNull(config);
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.runner;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.lithium.flow.filer.Filer;
+import com.lithium.flow.filer.Record;
+import com.lithium.flow.shell.Shell;
+import com.lithium.flow.util.CheckedFunction;
+import com.lithium.flow.util.Lazy;
+import com.lithium.flow.util.Logs;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+
+/**
+ * Content-addressed jar store shared by every deployment on a host. Each jar lives read-only as
+ * {@code <store>/<hash>.jar}, whatever name it was stored under, and deployments link it into their own lib dir by
+ * their own name, so a jar already on the host is never transferred again for another app.
+ *
+ * @author Matt Ayres
+ */
+public class JarStore {
+	private static final Logger log = Logs.getLogger();
+
+	private final Shell shell;
+	private final Filer destFiler;
+	private final String storeDir;
+	private final Lazy<Set<String>> hashes;
+
+	public JarStore(@Nonnull Shell shell, @Nonnull Filer destFiler, @Nonnull String storeDir) {
+		this.shell = checkNotNull(shell);
+		this.destFiler = checkNotNull(destFiler);
+		this.storeDir = checkNotNull(storeDir);
+		hashes = new Lazy<>(this::listHashes);
+	}
+
+	public boolean contains(@Nonnull String hash) {
+		return hashes.get().contains(hash);
+	}
+
+	/**
+	 * Adds a jar by having the writer write it by name into a temporary dir, from where it is renamed into place, so
+	 * other deployments never see a partial jar. Returns false if the writer did not write it, or wrote a jar whose
+	 * sha256 is not the hash it is stored under.
+	 */
+	public boolean put(@Nonnull String hash, @Nonnull String name,
+			@Nonnull CheckedFunction<String, Boolean, IOException> writer) throws IOException {
+		String storePath = getStorePath(hash);
+		String tempDir = storeDir + "/" + hash + ".tmp" + System.nanoTime();
+		destFiler.createDirs(tempDir);
+
+		try {
+			if (!writer.apply(tempDir)) {
+				return false;
+			}
+
+			String tempPath = tempDir + "/" + name;
+			String tempHash = shell.exec("sha256sum " + tempPath + " | awk '{ print $1 }'", false).line().trim();
+			if (!tempHash.equalsIgnoreCase(hash)) {
+				log.warn("store: {} has hash {} instead of {}", name, tempHash, hash);
+				return false;
+			}
+
+			exec("chmod a-w " + tempPath);
+			try {
+				destFiler.renameFile(tempPath, storePath);
+			} catch (IOException e) {
+				// another deployment stored the same jar first
+				if (!destFiler.getRecord(storePath).exists()) {
+					throw e;
+				}
+			}
+		} finally {
+			exec("chmod -R u+w " + tempDir);
+			destFiler.deleteTree(tempDir);
+		}
+
+		hashes.get().add(hash);
+		return true;
+	}
+
+	/**
+	 * Points destDir/name at the stored jar, with a hard link where the filesystem allows and a symlink otherwise.
+	 */
+	public void link(@Nonnull String hash, @Nonnull String name, @Nonnull String destDir) throws IOException {
+		String storePath = getStorePath(hash);
+		String destPath = destDir + "/" + name;
+		exec("ln -f " + storePath + " " + destPath + " 2>/dev/null || ln -sf " + storePath + " " + destPath);
+	}
+
+	@Nonnull
+	private String getStorePath(@Nonnull String hash) {
+		return storeDir + "/" + hash + ".jar";
+	}
+
+	private void exec(@Nonnull String command) throws IOException {
+		Optional<Integer> exit = shell.exec(command, false).exit();
+		if (exit.isPresent() && exit.get() != 0) {
+			throw new IOException("command failed with exit code " + exit.get() + ": " + command);
+		}
+	}
+
+	@Nonnull
+	private Set<String> listHashes() throws IOException {
+		Set<String> set = ConcurrentHashMap.newKeySet();
+		if (destFiler.getRecord(storeDir).exists()) {
+			destFiler.listRecords(storeDir).stream()
+					.filter(Record::isFile)
+					.map(Record::getName)
+					.filter(name -> name.endsWith(".jar"))
+					.map(name -> name.substring(0, name.length() - ".jar".length()))
+					.forEach(set::add);
+		} else {
+			destFiler.createDirs(storeDir);
+		}
+		log.debug("store: {} jars in {}", set.size(), storeDir);
+		return set;
+	}
+}
@@ -36,25 +36,37 @@ import com.lithium.flow.util.Threader;
 import com.lithium.flow.vault.Vault;
 import com.lithium.flow.vault.Vaults;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import javax.annotation.Nonnull;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 
 import com.google.common.base.Splitter;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * @author Matt Ayres
@@ -68,18 +80,23 @@ public class RunnerContext {
 	private final Access access;
 	private final Shore shore;
 	private final JarProvider jarProvider;
+	private final HashCache hashCache;
+	private final RunnerFanout fanout;
 	private final Threader syncThreader;
 	private final Threader runThreader;
+	private final Threader buildThreader;
+	private final File jarDir;
 
 	private final Progress progress;
 	private final Measure hostsMeasure;
 	private final Measure libsMeasure;
 	private final Measure modulesMeasure;
 	private final Measure filesMeasure;
+	private final Map<Integer, Measure> waveMeasures = new ConcurrentHashMap<>();
 
 	private final List<String> libs = new ArrayList<>();
 	private final List<String> modules = new ArrayList<>();
-	private final Map<String, Lazy<byte[]>> bytes = new HashMap<>();
+	private final Map<String, Lazy<File>> jars = new HashMap<>();
 
 	public RunnerContext(@Nonnull Config config) throws IOException {
 		this.config = checkNotNull(config);
@@ -91,7 +108,12 @@ public class RunnerContext {
 		syncThreader = new Threader(config.getInt("sync.threads", 50))
 				.withNeedlePermits(config.getInt("sync.needlePermits", 8));
 		runThreader = Threader.forDaemon(config.getInt("run.threads", -1));
+		buildThreader = Threader.forDaemon(config.getInt("build.threads", Runtime.getRuntime().availableProcessors()));
+		jarDir = new File(config.getString("build.jarCache", System.getProperty("user.home") + "/.flow/jars"));
 		jarProvider = JarProvider.build(config, access, filer);
+		hashCache = new HashCache(filer, new File(config.getString("sync.hashCache",
+				System.getProperty("user.home") + "/.flow/hashes")));
+		fanout = new RunnerFanout(config.getInt("fanout", 0));
 
 		progress = Progress.start(config);
 		hostsMeasure = progress.counter("hosts");
@@ -100,6 +122,7 @@ public class RunnerContext {
 		filesMeasure = progress.counter("files").useForEta();
 
 		scanClassPath();
+		pruneJars(config.getTime("build.jarCache.maxAge", "30d"));
 	}
 
 	private void scanClassPath() throws IOException {
@@ -135,32 +158,113 @@ public class RunnerContext {
 
 				String name = "runner_" + hasher.hash() + ".jar";
 				modules.add(name);
-				bytes.put(name, new Lazy<>(() -> buildJar(classPath, records)));
+				jars.put(name, new Lazy<>(() -> buildJar(name, classPath, records)));
 			}
 		}
 	}
 
+	/**
+	 * Builds the module jar into the local jar cache, or reuses the one built by an earlier run for the same inputs.
+	 * Entries are read and deflated in parallel but written in path order, so the jar stays byte-identical.
+	 */
 	@Nonnull
-	private byte[] buildJar(@Nonnull String dir, @Nonnull List<Record> records) throws IOException {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+	private File buildJar(@Nonnull String name, @Nonnull String dir, @Nonnull List<Record> records)
+			throws IOException {
+		File file = new File(jarDir, name);
+		if (file.exists()) {
+			log.debug("jar cached: {}", file);
+			file.setLastModified(System.currentTimeMillis());
+			return file;
+		}
 
-		try (ZipOutputStream out = new ZipOutputStream(baos)) {
-			for (Record record : records) {
-				out.putNextEntry(new ZipEntry(record.getPath().replace(dir + "/", "")));
-				try (InputStream in = filer.readFile(record.getPath())) {
-					IOUtils.copy(in, out);
+		Files.createDirectories(jarDir.toPath());
+		File tempFile = new File(jarDir, name + ".tmp" + System.nanoTime());
+		int window = config.getInt("build.window", 256);
+
+		try {
+			try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(tempFile)) {
+				Deque<ListenableFuture<JarEntry>> futures = new ArrayDeque<>();
+				for (Record record : records) {
+					futures.add(buildThreader.submit("jar:" + record.getPath(), () -> deflate(dir, record)));
+					if (futures.size() >= window) {
+						Futures.getChecked(futures.remove(), IOException.class).writeTo(out);
+					}
+				}
+				while (!futures.isEmpty()) {
+					Futures.getChecked(futures.remove(), IOException.class).writeTo(out);
 				}
-				out.closeEntry();
 			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile.toPath());
+		}
+
+		log.debug("jar built: {} ({} entries, {} bytes)", file, records.size(), file.length());
+		return file;
+	}
+
+	@Nonnull
+	private JarEntry deflate(@Nonnull String dir, @Nonnull Record record) throws IOException {
+		byte[] data;
+		try (InputStream in = filer.readFile(record.getPath())) {
+			data = IOUtils.toByteArray(in);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length / 2 + 64);
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try (DeflaterOutputStream out = new DeflaterOutputStream(baos, deflater)) {
+			out.write(data);
+		} finally {
+			deflater.end();
+		}
+
+		// stable entry times keep rebuilt jars byte-identical where their classes are
+		ZipArchiveEntry entry = new ZipArchiveEntry(record.getPath().replace(dir + "/", ""));
+		entry.setTime(record.getTime());
+		entry.setMethod(ZipEntry.DEFLATED);
+		entry.setSize(data.length);
+		entry.setCrc(crc.getValue());
+		entry.setCompressedSize(baos.size());
+		return new JarEntry(entry, baos.toByteArray());
+	}
+
+	private void pruneJars(long maxAge) {
+		File[] files = jarDir.listFiles();
+		if (files == null) {
+			return;
 		}
 
-		return baos.toByteArray();
+		long minTime = System.currentTimeMillis() - maxAge;
+		for (File file : files) {
+			if (file.lastModified() < minTime && !jars.containsKey(file.getName()) && file.delete()) {
+				log.debug("jar pruned: {}", file);
+			}
+		}
+	}
+
+	private static class JarEntry {
+		private final ZipArchiveEntry entry;
+		private final byte[] compressed;
+
+		private JarEntry(@Nonnull ZipArchiveEntry entry, @Nonnull byte[] compressed) {
+			this.entry = entry;
+			this.compressed = compressed;
+		}
+
+		private void writeTo(@Nonnull ZipArchiveOutputStream out) throws IOException {
+			out.addRawArchiveEntry(entry, new ByteArrayInputStream(compressed));
+		}
 	}
 
 	public void close() throws IOException {
 		syncThreader.close();
 		runThreader.close();
+		buildThreader.close();
 		shore.close();
+		hashCache.save();
 	}
 
 	@Nonnull
@@ -203,6 +307,16 @@ public class RunnerContext {
 		return jarProvider;
 	}
 
+	@Nonnull
+	public HashCache getHashCache() {
+		return hashCache;
+	}
+
+	@Nonnull
+	public RunnerFanout getFanout() {
+		return fanout;
+	}
+
 	@Nonnull
 	public List<String> getLibs() {
 		return libs;
@@ -213,9 +327,12 @@ public class RunnerContext {
 		return modules;
 	}
 
+	/**
+	 * Returns the module jar in the local jar cache, building it on first use.
+	 */
 	@Nonnull
-	public Lazy<byte[]> getBytes(@Nonnull String sync) {
-		return bytes.get(sync);
+	public Lazy<File> getJar(@Nonnull String module) {
+		return jars.get(module);
 	}
 
 	@Nonnull
@@ -242,4 +359,9 @@ public class RunnerContext {
 	public Measure getFilesMeasure() {
 		return filesMeasure;
 	}
+
+	@Nonnull
+	public Measure getWaveMeasure(int wave) {
+		return waveMeasures.computeIfAbsent(wave, key -> progress.counter("wave" + key));
+	}
 }
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.runner;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Rsync-style block delta transfer. The receiving host runs {@link #main(String[])} twice: once as
+ * {@code sums <blockSize> <maxBases> <dir> <target>} to report block checksums of the newest jars already in the
+ * directory, and once as {@code patch <targetPath> <basePath>...} to rebuild the target from a delta read on stdin.
+ * The sender matches its bytes against those checksums with a rolling hash and sends only the literal runs.
+ * <p>
+ * Deliberately free of dependencies beyond the JDK so it runs from whatever version of this jar the host has.
+ *
+ * @author Matt Ayres
+ */
+public class RunnerDelta {
+	private static final String MAGIC = "flow-delta-1";
+	private static final int LITERAL = 'L';
+	private static final int COPY = 'C';
+	private static final int END = 'E';
+
+	public static void main(String[] args) throws IOException {
+		switch (args[0]) {
+			case "sums":
+				sums(Integer.parseInt(args[1]), Integer.parseInt(args[2]), new File(args[3]), args[4], System.out);
+				break;
+			case "patch":
+				if (!patch(args[1], Arrays.copyOfRange(args, 2, args.length), System.in)) {
+					System.exit(1);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("unknown command: " + args[0]);
+		}
+	}
+
+	static void sums(int blockSize, int maxBases, @Nonnull File dir, @Nonnull String target,
+			@Nonnull OutputStream stdout) throws IOException {
+		File[] files = dir.listFiles(file -> file.isFile() && file.getName().endsWith(".jar")
+				&& !file.getName().equals(target));
+		List<File> bases = new ArrayList<>(Arrays.asList(files != null ? files : new File[0]));
+		bases.sort(Comparator.comparingLong(File::lastModified).reversed());
+		bases = bases.subList(0, Math.min(maxBases, bases.size()));
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stdout, 65536));
+		out.writeUTF(MAGIC);
+		out.writeInt(bases.size());
+		byte[] block = new byte[blockSize];
+		for (File base : bases) {
+			long blocks = base.length() / blockSize;
+			out.writeUTF(base.getName());
+			out.writeInt((int) blocks);
+			try (InputStream in = new BufferedInputStream(Files.newInputStream(base.toPath()), 65536)) {
+				DataInputStream dataIn = new DataInputStream(in);
+				for (long i = 0; i < blocks; i++) {
+					dataIn.readFully(block);
+					out.writeInt(weak(block, 0, blockSize));
+					out.writeLong(strong(block, 0, blockSize));
+				}
+			}
+		}
+		out.flush();
+	}
+
+	static boolean patch(@Nonnull String targetPath, @Nonnull String[] basePaths, @Nonnull InputStream stdin)
+			throws IOException {
+		File target = new File(targetPath);
+		File temp = new File(targetPath + ".delta");
+		RandomAccessFile[] bases = new RandomAccessFile[basePaths.length];
+		try {
+			for (int i = 0; i < basePaths.length; i++) {
+				bases[i] = new RandomAccessFile(basePaths[i], "r");
+			}
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(stdin, 65536));
+			MessageDigest digest = md5();
+			long length = 0;
+			byte[] buffer = new byte[65536];
+
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp.toPath()), 65536)) {
+				while (true) {
+					int op = in.readUnsignedByte();
+					if (op == END) {
+						break;
+					}
+
+					int count;
+					if (op == LITERAL) {
+						count = in.readInt();
+						for (int left = count; left > 0; ) {
+							int n = Math.min(left, buffer.length);
+							in.readFully(buffer, 0, n);
+							out.write(buffer, 0, n);
+							digest.update(buffer, 0, n);
+							left -= n;
+						}
+					} else if (op == COPY) {
+						RandomAccessFile base = bases[in.readInt()];
+						base.seek(in.readLong());
+						count = in.readInt();
+						for (int left = count; left > 0; ) {
+							int n = Math.min(left, buffer.length);
+							base.readFully(buffer, 0, n);
+							out.write(buffer, 0, n);
+							digest.update(buffer, 0, n);
+							left -= n;
+						}
+					} else {
+						throw new IOException("unknown op: " + op);
+					}
+					length += count;
+				}
+			}
+
+			long expectedLength = in.readLong();
+			byte[] expectedDigest = new byte[16];
+			in.readFully(expectedDigest);
+			if (length != expectedLength || !Arrays.equals(digest.digest(), expectedDigest)) {
+				return false;
+			}
+
+			Files.move(temp.toPath(), target.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+			return true;
+		} finally {
+			for (RandomAccessFile base : bases) {
+				if (base != null) {
+					base.close();
+				}
+			}
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/**
+	 * Reads the output of the sums command, or returns an empty list if it did not come from a compatible helper.
+	 */
+	@Nonnull
+	public static List<Base> readSums(@Nonnull InputStream stdout) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stdout, 65536));
+		List<Base> bases = new ArrayList<>();
+		try {
+			if (!MAGIC.equals(in.readUTF())) {
+				return bases;
+			}
+		} catch (IOException e) {
+			return bases;
+		}
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			int blocks = in.readInt();
+			int[] weaks = new int[blocks];
+			long[] strongs = new long[blocks];
+			for (int j = 0; j < blocks; j++) {
+				weaks[j] = in.readInt();
+				strongs[j] = in.readLong();
+			}
+			bases.add(new Base(name, weaks, strongs));
+		}
+		return bases;
+	}
+
+	/**
+	 * Writes the delta that rebuilds data from the given bases and returns the number of literal bytes in it.
+	 */
+	public static long writeDelta(@Nonnull byte[] data, @Nonnull List<Base> bases, int blockSize,
+			@Nonnull OutputStream stdin) throws IOException {
+		Map<Integer, List<long[]>> blocks = new HashMap<>();
+		for (int i = 0; i < bases.size(); i++) {
+			Base base = bases.get(i);
+			for (int j = 0; j < base.weaks.length; j++) {
+				long[] block = { base.strongs[j], i, (long) j * blockSize };
+				blocks.computeIfAbsent(base.weaks[j], weak -> new ArrayList<>(1)).add(block);
+			}
+		}
+
+		DataOutputStream out = new DataOutputStream(stdin);
+		long literals = 0;
+		int literalStart = 0;
+		int copyBase = -1;
+		long copyOffset = 0;
+		int copyLength = 0;
+
+		int pos = 0;
+		int a = 0;
+		int b = 0;
+		boolean rolling = false;
+		while (pos + blockSize <= data.length) {
+			if (!rolling) {
+				a = 0;
+				b = 0;
+				for (int i = 0; i < blockSize; i++) {
+					a += data[pos + i] & 0xFF;
+					b += (blockSize - i) * (data[pos + i] & 0xFF);
+				}
+				rolling = true;
+			}
+
+			long[] match = null;
+			List<long[]> candidates = blocks.get((a & 0xFFFF) | b << 16);
+			if (candidates != null) {
+				long strong = strong(data, pos, blockSize);
+				for (long[] candidate : candidates) {
+					if (candidate[0] == strong) {
+						match = candidate;
+						break;
+					}
+				}
+			}
+
+			if (match != null) {
+				if (literalStart < pos) {
+					writeCopy(out, copyBase, copyOffset, copyLength);
+					copyBase = -1;
+					copyLength = 0;
+					literals += writeLiteral(out, data, literalStart, pos - literalStart);
+				}
+				if (copyBase == match[1] && copyOffset + copyLength == match[2]) {
+					copyLength += blockSize;
+				} else {
+					writeCopy(out, copyBase, copyOffset, copyLength);
+					copyBase = (int) match[1];
+					copyOffset = match[2];
+					copyLength = blockSize;
+				}
+				pos += blockSize;
+				literalStart = pos;
+				rolling = false;
+			} else {
+				int first = data[pos] & 0xFF;
+				a -= first;
+				b -= blockSize * first;
+				if (pos + blockSize < data.length) {
+					a += data[pos + blockSize] & 0xFF;
+					b += a;
+				}
+				pos++;
+			}
+		}
+
+		writeCopy(out, copyBase, copyOffset, copyLength);
+		literals += writeLiteral(out, data, literalStart, data.length - literalStart);
+		out.writeByte(END);
+		out.writeLong(data.length);
+		out.write(md5().digest(data));
+		out.flush();
+		return literals;
+	}
+
+	private static void writeCopy(@Nonnull DataOutputStream out, int base, long offset, int length)
+			throws IOException {
+		if (length > 0) {
+			out.writeByte(COPY);
+			out.writeInt(base);
+			out.writeLong(offset);
+			out.writeInt(length);
+		}
+	}
+
+	private static int writeLiteral(@Nonnull DataOutputStream out, @Nonnull byte[] data, int off, int len)
+			throws IOException {
+		if (len > 0) {
+			out.writeByte(LITERAL);
+			out.writeInt(len);
+			out.write(data, off, len);
+		}
+		return len;
+	}
+
+	private static int weak(@Nonnull byte[] data, int off, int len) {
+		int a = 0;
+		int b = 0;
+		for (int i = 0; i < len; i++) {
+			a += data[off + i] & 0xFF;
+			b += (len - i) * (data[off + i] & 0xFF);
+		}
+		return (a & 0xFFFF) | b << 16;
+	}
+
+	private static long strong(@Nonnull byte[] data, int off, int len) {
+		MessageDigest digest = md5();
+		digest.update(data, off, len);
+		byte[] hash = digest.digest();
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = value << 8 | hash[i] & 0xFF;
+		}
+		return value;
+	}
+
+	@Nonnull
+	private static MessageDigest md5() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static class Base {
+		private final String name;
+		private final int[] weaks;
+		private final long[] strongs;
+
+		private Base(@Nonnull String name, @Nonnull int[] weaks, @Nonnull long[] strongs) {
+			this.name = name;
+			this.weaks = weaks;
+			this.strongs = strongs;
+		}
+
+		@Nonnull
+		public String getName() {
+			return name;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lithium.flow.runner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Arranges the hosts of a deploy in a distribution tree. The first {@code width} hosts are fed by the deployer and
+ * every later host copies its libs from a parent in the previous wave, so the deployer uplink only carries each lib
+ * {@code width} times however many hosts there are.
+ *
+ * @author Matt Ayres
+ */
+public class RunnerFanout {
+	private final int width;
+	private final Map<String, SettableFuture<Object>> libs = new ConcurrentHashMap<>();
+
+	public RunnerFanout(int width) {
+		checkArgument(width >= 0, "invalid fanout width: %s", width);
+		this.width = width;
+	}
+
+	public boolean isEnabled() {
+		return width > 0;
+	}
+
+	/**
+	 * Host that feeds the host at the given index, or null if it is fed by the deployer.
+	 */
+	@Nullable
+	public String getSource(@Nonnull List<String> hosts, int index) {
+		checkNotNull(hosts);
+		return width == 0 || index < width ? null : hosts.get(index / width - 1);
+	}
+
+	public int getWave(int index) {
+		int wave = 0;
+		while (width > 0 && index >= width) {
+			index = index / width - 1;
+			wave++;
+		}
+		return wave;
+	}
+
+	/**
+	 * Blocks until the host has finished syncing its libs, failing if it could not.
+	 */
+	public void awaitLibs(@Nonnull String host) throws IOException {
+		Futures.getChecked(getLibs(host), IOException.class);
+	}
+
+	public void setLibs(@Nonnull String host, @Nonnull ListenableFuture<?> future) {
+		getLibs(host).setFuture(future);
+	}
+
+	/**
+	 * Releases hosts waiting on this one if it never got as far as {@link #setLibs}.
+	 */
+	public void failLibs(@Nonnull String host) {
+		getLibs(host).setException(new IOException("libs never synced on " + host));
+	}
+
+	@Nonnull
+	private SettableFuture<Object> getLibs(@Nonnull String host) {
+		return libs.computeIfAbsent(checkNotNull(host), key -> SettableFuture.create());
+	}
+}
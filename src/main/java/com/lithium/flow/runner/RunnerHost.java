@@ -94,10 +94,15 @@ public class RunnerHost implements Closeable {
 		try (RunnerSync sync = new RunnerSync(runnerConfig, context, destFiler)) {
 			sync.installJava();
 			sync.syncLibs(libDir);
+			context.getFanout().setLibs(host, sync.getLibsFuture());
 			sync.syncModules(moduleDir);
 			sync.syncPaths();
 		}
 
+		if (runnerConfig.containsKey("fanout.wave")) {
+			context.getWaveMeasure(runnerConfig.getInt("fanout.wave")).incDone();
+		}
+
 		kill();
 
 		vaultRun.deploy(destFiler);
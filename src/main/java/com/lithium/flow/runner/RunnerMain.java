@@ -19,6 +19,7 @@ package com.lithium.flow.runner;
 import static java.util.Collections.singletonList;
 
 import com.lithium.flow.config.Config;
+import com.lithium.flow.config.ConfigBuilder;
 import com.lithium.flow.config.ConfigLoader;
 import com.lithium.flow.config.Configs;
 import com.lithium.flow.config.loaders.FileConfigLoader;
@@ -55,11 +56,29 @@ public class RunnerMain {
 					.include(file.getAbsolutePath()).build();
 
 			if (deployConfig.containsKey("runner.hosts")) {
-				List<String> hosts = deployConfig.getList("runner.hosts", Splitter.on(' '));
-				HostUtils.expand(hosts).forEach(runHost -> {
-					Config runConfig = deployConfig.toBuilder().setString("runner.host", runHost).build();
-					parallel.execute(runHost, () -> runners.add(new RunnerHost(config, runConfig, context).start()));
-				});
+				List<String> hosts = HostUtils.expand(deployConfig.getList("runner.hosts", Splitter.on(' ')));
+				RunnerFanout fanout = context.getFanout();
+				for (int i = 0; i < hosts.size(); i++) {
+					String runHost = hosts.get(i);
+					ConfigBuilder builder = deployConfig.toBuilder().setString("runner.host", runHost);
+					if (fanout.isEnabled()) {
+						String source = fanout.getSource(hosts, i);
+						if (source != null) {
+							builder.setString("runner.fanout.source", source);
+						}
+						int wave = fanout.getWave(i);
+						builder.setString("runner.fanout.wave", String.valueOf(wave));
+						context.getWaveMeasure(wave).incTodo();
+					}
+					Config runConfig = builder.build();
+					parallel.execute(runHost, () -> {
+						try {
+							runners.add(new RunnerHost(config, runConfig, context).start());
+						} finally {
+							fanout.failLibs(runHost);
+						}
+					});
+				}
 			} else {
 				List<String> nums = deployConfig.getList("runner.nums", singletonList("0"), Splitter.on(' '));
 				HostUtils.expand(nums).forEach(num -> {
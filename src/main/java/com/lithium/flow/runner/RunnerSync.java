@@ -17,12 +17,14 @@
 package com.lithium.flow.runner;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toMap;
 
 import com.lithium.flow.config.Config;
 import com.lithium.flow.filer.Filer;
 import com.lithium.flow.filer.Record;
 import com.lithium.flow.filer.RecordPath;
+import com.lithium.flow.shell.Exec;
 import com.lithium.flow.shell.Shell;
 import com.lithium.flow.util.Lazy;
 import com.lithium.flow.util.Logs;
@@ -30,21 +32,40 @@ import com.lithium.flow.util.Measure;
 import com.lithium.flow.util.Needle;
 import com.lithium.flow.util.Once;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
 
 import javax.annotation.Nonnull;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 
+import com.google.common.base.Joiner;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * @author Matt Ayres
  */
@@ -56,6 +77,15 @@ public class RunnerSync implements Closeable {
 	private final Filer destFiler;
 	private final Shell shell;
 	private final Needle<?> needle;
+	private final String manifestPath;
+	private final Lazy<Map<String, String>> manifest;
+	private final Map<String, String> sent = new ConcurrentHashMap<>();
+	private final boolean delta;
+	private final int deltaBlockSize;
+	private final int deltaBases;
+	private final String fanoutSource;
+	private final List<ListenableFuture<?>> libFutures = new ArrayList<>();
+	private final JarStore store;
 
 	public RunnerSync(@Nonnull Config config, @Nonnull RunnerContext context, @Nonnull Filer destFiler)
 			throws IOException {
@@ -65,6 +95,15 @@ public class RunnerSync implements Closeable {
 
 		shell = context.getShore().getShell(config.getString("host"));
 		needle = context.getSyncNeedle();
+		manifestPath = config.getString("sync.manifest", "");
+		manifest = new Lazy<>(this::readManifest);
+		delta = config.getBoolean("sync.delta", false);
+		deltaBlockSize = config.getInt("sync.delta.blockSize", 2048);
+		deltaBases = config.getInt("sync.delta.bases", 3);
+		fanoutSource = config.getString("fanout.source", "");
+
+		String storeDir = config.getString("sync.store", "");
+		store = storeDir.isEmpty() ? null : new JarStore(shell, destFiler, storeDir);
 	}
 
 	public void installJava() {
@@ -92,22 +131,99 @@ public class RunnerSync implements Closeable {
 		Measure measure = context.getLibsMeasure();
 		measure.addTodo(context.getLibs().size());
 
+		// stored libs are read-only links that a fanout copy can't overwrite, and are shared across apps anyway
+		if (!fanoutSource.isEmpty() && store == null) {
+			fanoutLibs(dir);
+		}
+
+		if (!manifestPath.isEmpty()) {
+			syncLibsByHash(dir, measure);
+			return;
+		}
+
 		Map<String, Long> sizes = getSizes(dir);
 		if (sizes.isEmpty()) {
 			destFiler.createDirs(dir);
 		}
 
-		for (String lib : context.getLibs()) {
-			needle.execute("lib:" + lib, () -> {
-				Record record = context.getFiler().getRecord(lib);
+		for (Record record : context.getFiler().getRecords(context.getLibs())) {
+			libFutures.add(needle.execute("lib:" + record.getPath(), () -> {
 				Long size = sizes.get(record.getName());
 				if (size == null || size != record.getSize()) {
-					if (!context.getJarProvider().copy(record.getPath(), shell, destFiler, dir)) {
+					if (store != null) {
+						storeLib(record, context.getHashCache().getHash(record), dir);
+					} else if (!context.getJarProvider().copy(record.getPath(), shell, destFiler, dir)) {
 						sync(record.getPath(), dir + "/" + record.getName());
 					}
 				}
 				measure.incDone();
-			});
+			}));
+		}
+	}
+
+	/**
+	 * Completes once every lib submitted by {@link #syncLibs} has been synced.
+	 */
+	@Nonnull
+	public ListenableFuture<?> getLibsFuture() {
+		return Futures.allAsList(libFutures);
+	}
+
+	/**
+	 * Has the fanout source host copy the libs this host is missing straight to it. Whatever the copy misses is
+	 * left to the regular sync from the deployer. The source host must already trust the destination's host key,
+	 * since the default {@code fanout.command} keeps host key checking on; deployments that need otherwise can
+	 * override the command in config.
+	 */
+	private void fanoutLibs(@Nonnull String dir) {
+		try {
+			context.getFanout().awaitLibs(fanoutSource);
+
+			Map<String, Long> sizes = manifestPath.isEmpty() ? getSizes(dir) : Collections.emptyMap();
+			Map<String, String> hashes = manifestPath.isEmpty() ? Collections.emptyMap() : manifest.get();
+			Map<String, String> copies = new LinkedHashMap<>();
+			for (Record record : context.getFiler().getRecords(context.getLibs())) {
+				String destPath = dir + "/" + record.getName();
+				if (manifestPath.isEmpty()) {
+					Long size = sizes.get(record.getName());
+					if (size == null || size != record.getSize()) {
+						copies.put(destPath, "");
+					}
+				} else {
+					String hash = context.getHashCache().getHash(record);
+					if (!hash.equals(hashes.get(destPath))) {
+						copies.put(destPath, hash);
+					}
+				}
+			}
+			if (copies.isEmpty()) {
+				return;
+			}
+
+			destFiler.createDirs(dir);
+			String host = config.getString("host");
+			String command = config.getString("fanout.command",
+					"scp -q -o BatchMode=yes {paths} {user}@{host}:{dir}/")
+					.replace("{paths}", Joiner.on(' ').join(copies.keySet()))
+					.replace("{user}", context.getAccess().getLogin(host).getUser())
+					.replace("{host}", host)
+					.replace("{dir}", dir);
+
+			log.debug("fanout: {} libs from {}", copies.size(), fanoutSource);
+			Optional<Integer> exit;
+			try (Shell sourceShell = context.getShore().getShell(fanoutSource)) {
+				exit = sourceShell.exec(command, false).exit();
+			}
+
+			if (!exit.isPresent() || exit.get() != 0) {
+				log.warn("fanout from {} exited with {}, syncing libs directly", fanoutSource, exit.orElse(null));
+			} else if (!manifestPath.isEmpty()) {
+				// the source was synced against the same hashes in this run
+				hashes.putAll(copies);
+				sent.putAll(copies);
+			}
+		} catch (IOException e) {
+			log.warn("fanout from {} failed, syncing libs directly", fanoutSource, e);
 		}
 	}
 
@@ -115,6 +231,11 @@ public class RunnerSync implements Closeable {
 		Measure measure = context.getModulesMeasure();
 		measure.addTodo(context.getModules().size());
 
+		if (!manifestPath.isEmpty()) {
+			syncModulesByHash(dir, measure);
+			return;
+		}
+
 		Map<String, Long> sizes = getSizes(dir);
 		if (sizes.isEmpty()) {
 			destFiler.createDirs(dir);
@@ -123,22 +244,176 @@ public class RunnerSync implements Closeable {
 		for (String module : context.getModules()) {
 			needle.execute("module:" + module, () -> {
 				Long size = sizes.get(module);
-				Lazy<byte[]> lazy = context.getBytes(module);
-				if (size == null || size != lazy.get().length) {
-					try (OutputStream out = destFiler.writeFile(dir + "/" + module)) {
-						IOUtils.copy(new ByteArrayInputStream(lazy.get()), out);
+				File jar = context.getJar(module).get();
+				if (size == null || size != jar.length()) {
+					writeModule(dir, module, jar);
+				}
+				measure.incDone();
+			});
+		}
+	}
+
+	private void syncLibsByHash(@Nonnull String dir, @Nonnull Measure measure) throws IOException {
+		Map<String, String> hashes = manifest.get();
+		if (hashes.isEmpty()) {
+			destFiler.createDirs(dir);
+		}
+
+		HashCache hashCache = context.getHashCache();
+		for (Record record : context.getFiler().getRecords(context.getLibs())) {
+			libFutures.add(needle.execute("lib:" + record.getPath(), () -> {
+				String destPath = dir + "/" + record.getName();
+				String hash = hashCache.getHash(record);
+				String destHash = hashes.get(destPath);
+				if (!hash.equals(destHash)) {
+					if (store != null) {
+						storeLib(record, hash, dir);
+					} else {
+						if (destHash != null || destFiler.getRecord(destPath).exists()) {
+							// jar providers only compare sizes, so clear out a stale copy that may be the same size,
+							// including one left before the manifest first recorded it
+							destFiler.deleteFile(destPath);
+						}
+						if (!context.getJarProvider().copy(record.getPath(), shell, destFiler, dir)) {
+							sync(record.getPath(), destPath);
+						}
 					}
+					sent.put(destPath, hash);
+				}
+				measure.incDone();
+			}));
+		}
+	}
+
+	/**
+	 * Makes sure the lib is in the host's jar store, transferring it only if no deployment has stored it yet, and
+	 * links it into the lib dir.
+	 */
+	private void storeLib(@Nonnull Record record, @Nonnull String hash, @Nonnull String dir) throws IOException {
+		if (!context.getJarProvider().store(record.getPath(), hash, shell, destFiler, store)) {
+			boolean stored = store.put(hash, record.getName(), tempDir -> {
+				sync(record.getPath(), tempDir + "/" + record.getName());
+				return true;
+			});
+			if (!stored) {
+				throw new IOException("synced lib does not match its hash: " + record.getPath());
+			}
+		}
+		store.link(hash, record.getName(), dir);
+	}
+
+	private void syncModulesByHash(@Nonnull String dir, @Nonnull Measure measure) throws IOException {
+		Map<String, String> hashes = manifest.get();
+		if (hashes.isEmpty()) {
+			destFiler.createDirs(dir);
+		}
+
+		for (String module : context.getModules()) {
+			needle.execute("module:" + module, () -> {
+				// module names already hash the paths, sizes and times of their contents
+				String destPath = dir + "/" + module;
+				if (!module.equals(hashes.get(destPath))) {
+					writeModule(dir, module, context.getJar(module).get());
+					sent.put(destPath, module);
 				}
 				measure.incDone();
 			});
 		}
 	}
 
+	private void writeModule(@Nonnull String dir, @Nonnull String module, @Nonnull File jar) throws IOException {
+		if (delta && writeDelta(dir, module, jar)) {
+			return;
+		}
+
+		try (InputStream in = new FileInputStream(jar)) {
+			try (OutputStream out = destFiler.writeFile(dir + "/" + module)) {
+				IOUtils.copy(in, out);
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the module on the host from blocks of the newest jars already there, sending only literal runs.
+	 * Returns false if the host has no usable helper or bases, leaving the caller to send the whole module.
+	 */
+	private boolean writeDelta(@Nonnull String dir, @Nonnull String module, @Nonnull File jar) {
+		String java = config.getString("sync.delta.java", "java");
+		String classpath = config.getString("lib.dir") + "/*:" + dir + "/*";
+		String command = java + " -cp '" + classpath + "' " + RunnerDelta.class.getName();
+
+		try {
+			List<RunnerDelta.Base> bases;
+			try (Exec exec = shell.exec(command + " sums " + deltaBlockSize + " " + deltaBases + " " + dir + " "
+					+ module, false)) {
+				bases = RunnerDelta.readSums(exec.getInputStream());
+			}
+			if (bases.isEmpty()) {
+				return false;
+			}
+
+			// only held while this module's delta is computed
+			byte[] bytes = Files.readAllBytes(jar.toPath());
+			StringBuilder patch = new StringBuilder(command + " patch " + dir + "/" + module);
+			bases.forEach(base -> patch.append(" ").append(dir).append("/").append(base.getName()));
+
+			try (Exec exec = shell.exec(patch.toString(), false)) {
+				long literals;
+				try (OutputStream out = new BufferedOutputStream(exec.getOutputStream(), 65536)) {
+					literals = RunnerDelta.writeDelta(bytes, bases, deltaBlockSize, out);
+				}
+
+				Optional<Integer> exit = exec.exit();
+				log.debug("delta: {} of {} bytes sent for {}", literals, bytes.length, module);
+				return exit.isPresent() && exit.get() == 0;
+			}
+		} catch (IOException e) {
+			log.debug("delta failed: {}", module, e);
+			return false;
+		}
+	}
+
+	@Nonnull
+	private Map<String, String> readManifest() throws IOException {
+		Map<String, String> hashes = new ConcurrentHashMap<>();
+		if (destFiler.getRecord(manifestPath).exists()) {
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(destFiler.readFile(manifestPath), UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int index = line.indexOf('\t');
+					if (index > 0) {
+						hashes.put(line.substring(index + 1), line.substring(0, index));
+					}
+				}
+			}
+		}
+		log.debug("manifest: {} entries in {}", hashes.size(), manifestPath);
+		return hashes;
+	}
+
+	private void writeManifest() throws IOException {
+		Map<String, String> hashes = new TreeMap<>(manifest.get());
+		hashes.putAll(sent);
+
+		destFiler.createFolder(manifestPath);
+		try (Writer writer = new OutputStreamWriter(destFiler.writeFile(manifestPath), UTF_8)) {
+			for (Map.Entry<String, String> entry : hashes.entrySet()) {
+				writer.write(entry.getValue() + "\t" + entry.getKey() + "\n");
+			}
+		}
+	}
+
 	public void syncPaths() {
 		List<String> paths = config.getList("paths", Collections.emptyList());
 		String destDir = config.getString("dest.dir");
 		Measure measure = context.getFilesMeasure();
 
+		if (config.getBoolean("sync.tar", false)) {
+			needle.execute("paths", () -> tarPaths(paths, destDir, measure));
+			return;
+		}
+
 		needle.execute("paths", () -> {
 			Once<String> once = new Once<>(destFiler::createDirs);
 
@@ -160,6 +435,69 @@ public class RunnerSync implements Closeable {
 		});
 	}
 
+	/**
+	 * Sends the files that differ in size or time from the destination as one compressed tar stream, unpacked by a
+	 * single remote tar process that also restores their times.
+	 */
+	private void tarPaths(@Nonnull List<String> paths, @Nonnull String destDir, @Nonnull Measure measure)
+			throws IOException {
+		String destPrefix = destDir + "/";
+		Map<String, Record> destRecords = new LinkedHashMap<>();
+		if (destFiler.getRecord(destDir).exists()) {
+			destFiler.findRecords(destDir, 1).filter(Record::isFile)
+					.forEach(record -> destRecords.put(record.getPath().replace(destPrefix, ""), record));
+		}
+
+		Map<String, Record> changed = new LinkedHashMap<>();
+		for (String path : paths) {
+			RecordPath recordPath = RecordPath.from(new File(path).getCanonicalPath());
+			String prefix = recordPath.getFolder() + "/";
+
+			context.getFiler().findRecords(path, 1).filter(Record::isFile).forEach(record -> {
+				String name = record.getPath().replace(prefix, "");
+				Record destRecord = destRecords.get(name);
+				if (destRecord == null || destRecord.getSize() != record.getSize()
+						|| destRecord.getTime() / 1000 != record.getTime() / 1000) {
+					changed.put(name, record);
+				}
+			});
+		}
+
+		log.debug("tar paths: {} of {} changed", changed.size(), destRecords.size());
+		if (changed.isEmpty()) {
+			return;
+		}
+		measure.addTodo(changed.size());
+
+		try (Exec exec = shell.exec("mkdir -p " + destDir + " && tar -xzf - -C " + destDir, false)) {
+			OutputStream out = new GZIPOutputStream(new BufferedOutputStream(exec.getOutputStream(), 65536), 65536);
+			try (TarArchiveOutputStream tar = new TarArchiveOutputStream(out)) {
+				tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+				tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+
+				for (Map.Entry<String, Record> entry : changed.entrySet()) {
+					Record record = entry.getValue();
+					TarArchiveEntry tarEntry = new TarArchiveEntry(entry.getKey());
+					tarEntry.setSize(record.getSize());
+					tarEntry.setModTime(record.getTime());
+					tar.putArchiveEntry(tarEntry);
+
+					String srcPath = new File(record.getPath()).getCanonicalPath();
+					try (InputStream in = context.getFiler().readFile(srcPath)) {
+						ByteStreams.copy(ByteStreams.limit(in, record.getSize()), tar);
+					}
+					tar.closeArchiveEntry();
+					measure.incDone();
+				}
+			}
+
+			Optional<Integer> exit = exec.exit();
+			if (exit.isPresent() && exit.get() != 0) {
+				throw new IOException("tar failed with exit code " + exit.get() + " for " + destDir);
+			}
+		}
+	}
+
 	@Nonnull
 	private Map<String, Long> getSizes(@Nonnull String dir) throws IOException {
 		return destFiler.listRecords(dir).stream().collect(toMap(Record::getName, Record::getSize));
@@ -174,7 +512,10 @@ public class RunnerSync implements Closeable {
 	}
 
 	@Override
-	public void close() {
+	public void close() throws IOException {
 		needle.close();
+		if (!sent.isEmpty()) {
+			writeManifest();
+		}
 	}
 }
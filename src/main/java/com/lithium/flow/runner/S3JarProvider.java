@@ -58,8 +58,9 @@ public class S3JarProvider implements JarProvider {
 		Filer s3Filer = new S3Filer(config.prefix("s3"), access);
 
 		cache = Caches.build(path -> {
-			String name = RecordPath.getName(path);
-			String s3Path = "/lib/" + name;
+			// keyed by content, since a rebuilt jar of the same name and size must not be served from a stale upload
+			String hash = srcFiler.getHash(path, "md5", "base16.lowerCase");
+			String s3Path = "/lib/" + hash + "/" + RecordPath.getName(path);
 
 			Record srcRecord = srcFiler.getRecord(path);
 			Record s3Record = s3Filer.getRecord(s3Path);
@@ -52,6 +52,12 @@ public class Sshj extends SSHClient {
 	private final boolean pty;
 	private final int retries;
 	private final int filerBuffer;
+	private final int filerPageSize;
+	private final int filerPages;
+	private final int filerChannels;
+	private final long filerParallelThreshold;
+	private final int filerPartSize;
+	private final long filerBandwidth;
 	private final long initTimeout;
 
 	public Sshj(@Nonnull Config config, @Nonnull Prompt prompt) throws IOException {
@@ -100,6 +106,12 @@ public class Sshj extends SSHClient {
 		pty = config.getBoolean("shell.pty", false);
 		retries = config.getInt("shell.retries", 3);
 		filerBuffer = config.getInt("shell.filer.buffer", 64);
+		filerPageSize = config.getInt("shell.filer.pageSize", 32 * 1024);
+		filerPages = config.getInt("shell.filer.pages", 16);
+		filerChannels = config.getInt("shell.filer.channels", 4);
+		filerParallelThreshold = config.getLong("shell.filer.parallelThreshold", -1);
+		filerPartSize = config.getInt("shell.filer.partSize", 8 * 1024 * 1024);
+		filerBandwidth = config.getLong("shell.filer.bandwidth", 64 * 1024 * 1024);
 	}
 
 	public void connect(@Nonnull Login login) throws IOException {
@@ -190,4 +202,28 @@ public class Sshj extends SSHClient {
 	public int getFilerBuffer() {
 		return filerBuffer;
 	}
+
+	public int getFilerPageSize() {
+		return filerPageSize;
+	}
+
+	public int getFilerPages() {
+		return filerPages;
+	}
+
+	public int getFilerChannels() {
+		return filerChannels;
+	}
+
+	public long getFilerParallelThreshold() {
+		return filerParallelThreshold;
+	}
+
+	public int getFilerPartSize() {
+		return filerPartSize;
+	}
+
+	public long getFilerBandwidth() {
+		return filerBandwidth;
+	}
 }
@@ -23,25 +23,48 @@ import com.lithium.flow.filer.Filer;
 import com.lithium.flow.filer.Record;
 import com.lithium.flow.filer.RecordPath;
 import com.lithium.flow.io.DataIo;
+import com.lithium.flow.io.PagedDataIo;
+import com.lithium.flow.util.CheckedFunction;
+import com.lithium.flow.util.Lazy;
+import com.lithium.flow.util.Threader;
 import com.lithium.flow.util.Unchecked;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import net.schmizz.concurrent.Promise;
 import net.schmizz.sshj.sftp.FileAttributes;
 import net.schmizz.sshj.sftp.FileMode;
 import net.schmizz.sshj.sftp.OpenMode;
+import net.schmizz.sshj.sftp.PacketType;
 import net.schmizz.sshj.sftp.RemoteFile;
 import net.schmizz.sshj.sftp.RemoteResourceInfo;
+import net.schmizz.sshj.sftp.Response;
 import net.schmizz.sshj.sftp.SFTPClient;
+import net.schmizz.sshj.sftp.SFTPEngine;
+import net.schmizz.sshj.sftp.SFTPException;
 
 /**
  * @author Matt Ayres
@@ -51,15 +74,39 @@ public class SshjFiler implements Filer {
 	private static final Set<OpenMode> WRITE_MODES = EnumSet.of(OpenMode.WRITE, OpenMode.CREAT, OpenMode.TRUNC);
 	private static final Set<OpenMode> APPEND_MODES = EnumSet.of(OpenMode.WRITE, OpenMode.CREAT, OpenMode.APPEND);
 	private static final Set<OpenMode> OPEN_WRITE_MODES = EnumSet.of(OpenMode.READ, OpenMode.WRITE, OpenMode.CREAT);
+	private static final Set<OpenMode> PART_MODES = EnumSet.of(OpenMode.WRITE);
+	private static final int CHUNK_SIZE = 32 * 1024;
+	private static final int MAX_DEPTH = 1024;
 
+	private final Sshj ssh;
 	private final URI uri;
 	private final SFTPClient sftp;
 	private final int buffer;
+	private final int pageSize;
+	private final int pages;
+	private final int channels;
+	private final long parallelThreshold;
+	private final int partSize;
+	private final long bandwidth;
+	private final Semaphore channelPermits;
+	private final Queue<SFTPClient> idleChannels = new ConcurrentLinkedQueue<>();
+	private final List<SFTPClient> openChannels = new CopyOnWriteArrayList<>();
+	private final Lazy<Threader> threader;
+	private volatile long rtt = Long.MAX_VALUE;
 
 	public SshjFiler(@Nonnull Sshj ssh, @Nonnull URI uri) throws IOException {
+		this.ssh = checkNotNull(ssh);
 		this.uri = checkNotNull(uri);
-		sftp = checkNotNull(ssh).newSFTPClient();
+		sftp = ssh.newSFTPClient();
 		buffer = ssh.getFilerBuffer();
+		pageSize = ssh.getFilerPageSize();
+		pages = ssh.getFilerPages();
+		channels = ssh.getFilerChannels();
+		parallelThreshold = ssh.getFilerParallelThreshold();
+		partSize = ssh.getFilerPartSize();
+		bandwidth = ssh.getFilerBandwidth();
+		channelPermits = new Semaphore(channels);
+		threader = new Lazy<>(() -> new Threader(channels));
 	}
 
 	@Override
@@ -91,39 +138,282 @@ public class SshjFiler implements Filer {
 	@Nonnull
 	public Record getRecord(@Nonnull String path) {
 		try {
-			FileAttributes attributes = sftp.stat(path);
-			return new Record(uri, RecordPath.from(path), attributes.getMtime() * 1000,
-					attributes.getSize(), attributes.getMode().getType() == FileMode.Type.DIRECTORY);
+			return getRecord(path, sftp.stat(path));
 		} catch (IOException e) {
 			return Record.noFile(uri, path);
 		}
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		SFTPEngine engine = sftp.getSFTPEngine();
+		List<Record> records = new ArrayList<>();
+		Deque<Promise<Response, SFTPException>> promises = new ArrayDeque<>();
+		for (String path : paths) {
+			if (promises.size() >= buffer) {
+				records.add(getRecord(paths.get(records.size()), engine, promises.removeFirst()));
+			}
+			promises.addLast(engine.request(engine.newRequest(PacketType.STAT).putString(path)));
+		}
+		while (!promises.isEmpty()) {
+			records.add(getRecord(paths.get(records.size()), engine, promises.removeFirst()));
+		}
+		return records;
+	}
+
+	@Nonnull
+	private Record getRecord(@Nonnull String path, @Nonnull SFTPEngine engine,
+			@Nonnull Promise<Response, SFTPException> promise) throws IOException {
+		Response response = promise.retrieve(engine.getTimeoutMs(), TimeUnit.MILLISECONDS);
+		if (response.getType() == PacketType.ATTRS) {
+			return getRecord(path, response.readFileAttributes());
+		} else {
+			return Record.noFile(uri, path);
+		}
+	}
+
+	@Nonnull
+	private Record getRecord(@Nonnull String path, @Nonnull FileAttributes attributes) {
+		return new Record(uri, RecordPath.from(path), attributes.getMtime() * 1000,
+				attributes.getSize(), attributes.getMode().getType() == FileMode.Type.DIRECTORY);
+	}
+
 	@Override
 	@Nonnull
 	public InputStream readFile(@Nonnull String path) throws IOException {
-		RemoteFile remoteFile = sftp.open(path, READ_MODES);
-		return remoteFile.new ReadAheadRemoteFileInputStream(buffer);
+		RemoteFile remoteFile = open(sftp, path, READ_MODES);
+		if (parallelThreshold < 0) {
+			return remoteFile.new ReadAheadRemoteFileInputStream(depth());
+		}
+
+		long length = remoteFile.length();
+		if (length <= parallelThreshold) {
+			return remoteFile.new ReadAheadRemoteFileInputStream(depth());
+		}
+
+		// the first part streams over this channel while the rest are fetched over borrowed ones; the read-ahead
+		// limit only stops fetching ahead, so the stream itself has to be cut at the part boundary
+		InputStream first = ByteStreams.limit(remoteFile.new ReadAheadRemoteFileInputStream(depth(), 0, partSize),
+				partSize);
+		return readParts(path, length, first);
+	}
+
+	@Nonnull
+	private InputStream readParts(@Nonnull String path, long length, @Nonnull InputStream first) {
+		return new InputStream() {
+			private final Deque<ListenableFuture<byte[]>> parts = new ArrayDeque<>();
+			private InputStream in = first;
+			private long offset = partSize;
+			private boolean closed;
+
+			{
+				fill();
+			}
+
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+			}
+
+			@Override
+			public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+				if (closed) {
+					throw new IOException("stream closed");
+				}
+
+				while (true) {
+					int count = in.read(b, off, len);
+					if (count != -1 || parts.isEmpty()) {
+						return count;
+					}
+
+					in.close();
+					in = new ByteArrayInputStream(Futures.getChecked(parts.poll(), IOException.class));
+					fill();
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (!closed) {
+					closed = true;
+					parts.forEach(part -> part.cancel(false));
+					parts.clear();
+					in.close();
+				}
+			}
+
+			private void fill() {
+				while (parts.size() < channels && offset < length) {
+					long partOffset = offset;
+					int partLength = (int) Math.min(partSize, length - offset);
+					parts.add(threader.get().submit(path + "@" + partOffset,
+							() -> readPart(path, partOffset, partLength)));
+					offset += partLength;
+				}
+			}
+		};
+	}
+
+	@Nonnull
+	private byte[] readPart(@Nonnull String path, long offset, int length) throws IOException {
+		return withChannel(channel -> {
+			byte[] bytes = new byte[length];
+			try (RemoteFile remoteFile = open(channel, path, READ_MODES);
+					InputStream in = remoteFile.new ReadAheadRemoteFileInputStream(depth(), offset, length)) {
+				ByteStreams.readFully(in, bytes);
+			}
+			return bytes;
+		});
+	}
+
+	@Override
+	@Nonnull
+	public InputStream readRange(@Nonnull String path, long offset, long length) throws IOException {
+		if (length == 0) {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+
+		RemoteFile remoteFile = open(sftp, path, READ_MODES);
+		return ByteStreams.limit(remoteFile.new ReadAheadRemoteFileInputStream(depth(), offset, length), length);
+	}
+
+	@Override
+	public int readAt(@Nonnull String path, long position, @Nonnull byte[] b, int off, int len) throws IOException {
+		try (RemoteFile remoteFile = sftp.open(path, READ_MODES)) {
+			int count = 0;
+			while (count < len) {
+				int read = remoteFile.read(position + count, b, off + count, len - count);
+				if (read < 0) {
+					break;
+				}
+				count += read;
+			}
+			return count == 0 && len > 0 ? -1 : count;
+		}
 	}
 
 	@Override
 	@Nonnull
 	public OutputStream writeFile(@Nonnull String path) throws IOException {
-		RemoteFile remoteFile = sftp.open(path, WRITE_MODES);
-		return remoteFile.new RemoteFileOutputStream(0, buffer);
+		RemoteFile remoteFile = open(sftp, path, WRITE_MODES);
+		OutputStream out = remoteFile.new RemoteFileOutputStream(0, depth());
+		return parallelThreshold < 0 ? out : writeParts(path, out);
+	}
+
+	@Nonnull
+	private OutputStream writeParts(@Nonnull String path, @Nonnull OutputStream first) {
+		return new OutputStream() {
+			private final Deque<ListenableFuture<Void>> parts = new ArrayDeque<>();
+			private boolean firstOpen = true;
+			private byte[] part;
+			private int partLength;
+			private long offset;
+			private boolean closed;
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+				if (closed) {
+					throw new IOException("stream closed");
+				}
+
+				// up to the threshold bytes stream over the channel that created the file
+				if (offset < parallelThreshold) {
+					int count = (int) Math.min(len, parallelThreshold - offset);
+					first.write(b, off, count);
+					offset += count;
+					off += count;
+					len -= count;
+				}
+
+				while (len > 0) {
+					closeFirst();
+					if (part == null) {
+						part = new byte[partSize];
+					}
+					int count = Math.min(len, partSize - partLength);
+					System.arraycopy(b, off, part, partLength, count);
+					partLength += count;
+					off += count;
+					len -= count;
+					if (partLength == partSize) {
+						submit();
+					}
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (closed) {
+					return;
+				}
+				closed = true;
+
+				try {
+					closeFirst();
+					if (partLength > 0) {
+						submit();
+					}
+					Futures.getChecked(Futures.allAsList(parts), IOException.class);
+				} finally {
+					parts.forEach(part -> part.cancel(false));
+				}
+			}
+
+			private void closeFirst() throws IOException {
+				if (firstOpen) {
+					firstOpen = false;
+					first.close();
+				}
+			}
+
+			private void submit() throws IOException {
+				while (parts.size() >= channels) {
+					Futures.getChecked(parts.poll(), IOException.class);
+				}
+
+				byte[] bytes = part;
+				int length = partLength;
+				long partOffset = offset;
+				parts.add(threader.get().execute(path + "@" + partOffset,
+						() -> writePart(path, partOffset, bytes, length)));
+				offset += length;
+				part = null;
+				partLength = 0;
+			}
+		};
+	}
+
+	private void writePart(@Nonnull String path, long offset, @Nonnull byte[] bytes, int length) throws IOException {
+		withChannel(channel -> {
+			try (RemoteFile remoteFile = open(channel, path, PART_MODES);
+					OutputStream out = remoteFile.new RemoteFileOutputStream(offset, depth())) {
+				out.write(bytes, 0, length);
+			}
+			return null;
+		});
 	}
 
 	@Override
 	@Nonnull
 	public OutputStream appendFile(@Nonnull String path) throws IOException {
-		RemoteFile remoteFile = sftp.open(path, APPEND_MODES);
-		return remoteFile.new RemoteFileOutputStream(remoteFile.length(), buffer);
+		RemoteFile remoteFile = open(sftp, path, APPEND_MODES);
+		return remoteFile.new RemoteFileOutputStream(remoteFile.length(), depth());
 	}
 
 	@Override
 	@Nonnull
 	public DataIo openFile(@Nonnull String path, boolean write) throws IOException {
-		return new SshjDataIo(sftp.open(path, write ? OPEN_WRITE_MODES : READ_MODES));
+		RemoteFile remoteFile = open(sftp, path, write ? OPEN_WRITE_MODES : READ_MODES);
+		return new PagedDataIo(new SshjDataIo(remoteFile), pageSize, pages,
+				offset -> remoteFile.new ReadAheadRemoteFileInputStream(buffer, offset));
 	}
 
 	@Override
@@ -136,6 +426,26 @@ public class SshjFiler implements Filer {
 		sftp.rm(path);
 	}
 
+	@Override
+	public void deleteFiles(@Nonnull Collection<String> paths) throws IOException {
+		SFTPEngine engine = sftp.getSFTPEngine();
+		Deque<Promise<Response, SFTPException>> promises = new ArrayDeque<>();
+		for (String path : paths) {
+			if (promises.size() >= buffer) {
+				retrieve(engine, promises.removeFirst());
+			}
+			promises.addLast(engine.request(engine.newRequest(PacketType.REMOVE).putString(path)));
+		}
+		while (!promises.isEmpty()) {
+			retrieve(engine, promises.removeFirst());
+		}
+	}
+
+	private void retrieve(@Nonnull SFTPEngine engine, @Nonnull Promise<Response, SFTPException> promise)
+			throws IOException {
+		promise.retrieve(engine.getTimeoutMs(), TimeUnit.MILLISECONDS).ensureStatusPacketIsOK();
+	}
+
 	@Override
 	public void renameFile(@Nonnull String oldPath, @Nonnull String newPath) throws IOException {
 		sftp.rename(oldPath, newPath);
@@ -153,8 +463,87 @@ public class SshjFiler implements Filer {
 		sftp.rmdir(path);
 	}
 
+	@Override
+	public void deleteTree(@Nonnull String path) throws IOException {
+		if (sftp.lstat(path).getType() != FileMode.Type.DIRECTORY) {
+			sftp.rm(path);
+			return;
+		}
+
+		List<String> files = new ArrayList<>();
+		for (RemoteResourceInfo info : sftp.ls(path)) {
+			if (info.isDirectory()) {
+				deleteTree(info.getPath());
+			} else {
+				files.add(info.getPath());
+			}
+		}
+		deleteFiles(files);
+		sftp.rmdir(path);
+	}
+
 	@Override
 	public void close() throws IOException {
-		sftp.close();
+		threader.getOptional().ifPresent(Threader::close);
+		try {
+			for (SFTPClient channel : openChannels) {
+				channel.close();
+			}
+		} finally {
+			sftp.close();
+		}
+	}
+
+	/**
+	 * Opens a remote file, timing the round trip to size the requests kept in flight for transfers.
+	 */
+	@Nonnull
+	private RemoteFile open(@Nonnull SFTPClient channel, @Nonnull String path, @Nonnull Set<OpenMode> modes)
+			throws IOException {
+		long start = System.nanoTime();
+		RemoteFile remoteFile = channel.open(path, modes);
+		rtt = Math.min(rtt, System.nanoTime() - start);
+		return remoteFile;
+	}
+
+	/**
+	 * Requests in flight needed to keep the configured bandwidth busy over the lowest round trip seen so far,
+	 * never less than the configured buffer.
+	 */
+	private int depth() {
+		double inFlight = (double) bandwidth * rtt / TimeUnit.SECONDS.toNanos(1) / CHUNK_SIZE;
+		return (int) Math.max(buffer, Math.min(MAX_DEPTH, inFlight));
+	}
+
+	/**
+	 * Runs the function on an idle SFTP channel, opening a new one on the same connection while fewer than the
+	 * configured number are in use. A channel whose call fails is closed rather than reused, since it may be broken.
+	 */
+	private <T> T withChannel(@Nonnull CheckedFunction<SFTPClient, T, IOException> function) throws IOException {
+		channelPermits.acquireUninterruptibly();
+		try {
+			SFTPClient channel = idleChannels.poll();
+			if (channel == null) {
+				channel = ssh.newSFTPClient();
+				openChannels.add(channel);
+			}
+
+			T result;
+			try {
+				result = function.apply(channel);
+			} catch (IOException | RuntimeException e) {
+				openChannels.remove(channel);
+				try {
+					channel.close();
+				} catch (IOException closeException) {
+					e.addSuppressed(closeException);
+				}
+				throw e;
+			}
+			idleChannels.add(channel);
+			return result;
+		} finally {
+			channelPermits.release();
+		}
 	}
 }
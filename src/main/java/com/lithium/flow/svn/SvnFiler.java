@@ -30,11 +30,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNException;
@@ -105,6 +108,52 @@ public class SvnFiler implements Filer {
 		}
 	}
 
+	@Override
+	@Nonnull
+	public List<Record> getRecords(@Nonnull List<String> paths) throws IOException {
+		Map<String, List<Integer>> folders = new LinkedHashMap<>();
+		for (int i = 0; i < paths.size(); i++) {
+			folders.computeIfAbsent(RecordPath.from(paths.get(i)).getFolder(), folder -> new ArrayList<>()).add(i);
+		}
+
+		Record[] records = new Record[paths.size()];
+		for (Map.Entry<String, List<Integer>> entry : folders.entrySet()) {
+			String folder = entry.getKey();
+			Map<String, SVNDirEntry> entries = entry.getValue().size() > 1 ? getEntries(folder) : null;
+			for (int index : entry.getValue()) {
+				String path = paths.get(index);
+				RecordPath recordPath = RecordPath.from(path);
+				SVNDirEntry dirEntry = entries != null ? entries.get(recordPath.getName()) : null;
+				if (dirEntry != null) {
+					records[index] = getRecord(dirEntry, folder);
+				} else if (entries != null && !findLast) {
+					records[index] = new Record(getUri(), recordPath, 0, Record.NO_EXIST_SIZE, false);
+				} else {
+					records[index] = getRecord(path);
+				}
+			}
+		}
+		return Arrays.asList(records);
+	}
+
+	@Nullable
+	private Map<String, SVNDirEntry> getEntries(@Nonnull String folder) throws IOException {
+		SVNRepository repository = svnProvider.getRepository();
+		try {
+			if (repository.checkPath(folder, revision) != SVNNodeKind.DIR) {
+				return null;
+			}
+
+			Map<String, SVNDirEntry> entries = new HashMap<>();
+			repository.getDir(folder, revision, new SVNProperties(), entry -> entries.put(entry.getName(), entry));
+			return entries;
+		} catch (SVNException e) {
+			throw new IOException("failed to get file records: " + getFullPath(folder), e);
+		} finally {
+			svnProvider.releaseRepository(repository);
+		}
+	}
+
 	@Nonnull
 	private Record getRecord(@Nonnull SVNDirEntry entry, @Nonnull String folder) {
 		boolean dir = SVNNodeKind.DIR.equals(entry.getKind());
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * {@link RateLimiter} whose rate follows additive-increase/multiplicative-decrease: every success adds
+ * {@code increase / rate} permits per second, so the rate climbs by about {@code increase} per second of
+ * saturated traffic, and every throttle multiplies it by {@code decrease}, at most once per {@code cooldown}
+ * so one burst of rejections only counts once. The rate always stays within {@code [minRate, maxRate]}.
+ *
+ * @author Matt Ayres
+ */
+public class AdaptiveRateLimiter {
+	private final RateLimiter limiter;
+	private final double minRate;
+	private final double maxRate;
+	private final double increase;
+	private final double decrease;
+	private final long cooldown;
+	private double rate;
+	private long lastDecrease;
+
+	public AdaptiveRateLimiter(double rate, double minRate, double maxRate, double increase, double decrease,
+			long cooldown) {
+		checkArgument(minRate > 0, "minRate must be positive: %s", minRate);
+		checkArgument(maxRate >= minRate, "maxRate must be at least minRate: %s", maxRate);
+		checkArgument(increase >= 0, "increase must not be negative: %s", increase);
+		checkArgument(decrease > 0 && decrease <= 1, "decrease must be in (0, 1]: %s", decrease);
+
+		this.minRate = minRate;
+		this.maxRate = maxRate;
+		this.increase = increase;
+		this.decrease = decrease;
+		this.cooldown = cooldown;
+		this.rate = Math.max(minRate, Math.min(maxRate, rate));
+		limiter = RateLimiter.create(this.rate);
+	}
+
+	public void acquire() {
+		limiter.acquire();
+	}
+
+	public void onSuccess() {
+		if (increase > 0) {
+			synchronized (this) {
+				if (rate < maxRate) {
+					setRate(rate + increase / rate);
+				}
+			}
+		}
+	}
+
+	public void onThrottle() {
+		long time = System.currentTimeMillis();
+		synchronized (this) {
+			if (time - lastDecrease >= cooldown && rate > minRate) {
+				lastDecrease = time;
+				setRate(rate * decrease);
+			}
+		}
+	}
+
+	public synchronized double getRate() {
+		return rate;
+	}
+
+	private void setRate(double newRate) {
+		double oldRate = limiter.getRate();
+		rate = Math.max(minRate, Math.min(maxRate, newRate));
+
+		// RateLimiter.setRate is comparatively expensive, so skip changes under 1%
+		if (Math.abs(rate - oldRate) >= oldRate / 100 || rate == minRate || rate == maxRate) {
+			if (rate != oldRate) {
+				limiter.setRate(rate);
+			}
+		}
+	}
+}
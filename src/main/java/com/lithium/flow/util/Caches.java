@@ -19,6 +19,7 @@ package com.lithium.flow.util;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.function.UnaryOperator;
 
 import javax.annotation.Nonnull;
@@ -48,6 +49,21 @@ public class Caches {
 		return operator.apply((CacheBuilder<K, V>) CacheBuilder.newBuilder()).build(loader(function));
 	}
 
+	/**
+	 * Builds a cache whose refreshes, as configured by {@link CacheBuilder#refreshAfterWrite}, reload on the executor
+	 * while callers keep getting the old value.
+	 */
+	@Nonnull
+	@SuppressWarnings("unchecked")
+	public static <K, V> LoadingCache<K, V> buildAsync(@Nonnull CheckedFunction<K, V, Exception> function,
+			@Nonnull Executor executor, @Nonnull UnaryOperator<CacheBuilder<K, V>> operator) {
+		checkNotNull(function);
+		checkNotNull(executor);
+		checkNotNull(operator);
+		return operator.apply((CacheBuilder<K, V>) CacheBuilder.newBuilder())
+				.build(CacheLoader.asyncReloading(loader(function), executor));
+	}
+
 	@Nonnull
 	public static <K, V> LoadingCache<K, V> buildWithListener(@Nonnull CheckedFunction<K, V, Exception> function,
 			@Nonnull RemovalListener<K, V> listener) {
@@ -18,6 +18,7 @@ package com.lithium.flow.util;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -40,6 +41,14 @@ public class Execute {
 	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(FACTORY);
 	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(FACTORY);
 
+	/**
+	 * Shared pool of daemon threads, for background work that shouldn't keep the process alive.
+	 */
+	@Nonnull
+	public static Executor executor() {
+		return EXECUTOR;
+	}
+
 	@Nonnull
 	public static ScheduledFuture<?> at(long time, @Nonnull Executable executable) {
 		return in(time - System.currentTimeMillis(), executable);
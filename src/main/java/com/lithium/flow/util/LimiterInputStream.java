@@ -40,21 +40,27 @@ public class LimiterInputStream extends FilterInputStream {
 	@Override
 	public int read() throws IOException {
 		int read = in.read();
-		limiter.acquire();
+		if (read != -1) {
+			limiter.acquire();
+		}
 		return read;
 	}
 
 	@Override
 	public int read(@Nonnull byte[] b) throws IOException {
 		int read = in.read(b);
-		limiter.acquire(read);
+		if (read > 0) {
+			limiter.acquire(read);
+		}
 		return read;
 	}
 
 	@Override
 	public int read(@Nonnull byte[] b, int off, int len) throws IOException {
 		int read = in.read(b, off, len);
-		limiter.acquire(read);
+		if (read > 0) {
+			limiter.acquire(read);
+		}
 		return read;
 	}
 }
@@ -38,21 +38,27 @@ public class MeasureInputStream extends FilterInputStream {
 	@Override
 	public int read() throws IOException {
 		int read = in.read();
-		measure.incDone();
+		if (read != -1) {
+			measure.incDone();
+		}
 		return read;
 	}
 
 	@Override
 	public int read(@Nonnull byte[] b) throws IOException {
 		int read = in.read(b);
-		measure.addDone(read);
+		if (read > 0) {
+			measure.addDone(read);
+		}
 		return read;
 	}
 
 	@Override
 	public int read(@Nonnull byte[] b, int off, int len) throws IOException {
 		int read = in.read(b, off, len);
-		measure.addDone(read);
+		if (read > 0) {
+			measure.addDone(read);
+		}
 		return read;
 	}
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.filer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Matt Ayres
+ */
+public class RecordCodecTest {
+	private static final URI LOCAL = URI.create("file:///");
+	private static final URI S3 = URI.create("s3://bucket/");
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		List<Record> records = buildRecords();
+		assertEquals(records, read(write(records)));
+	}
+
+	@Test
+	public void testUnicodePrefixes() throws IOException {
+		// the accented e names share their first UTF-8 byte, so the shared prefix ends inside a character
+		List<Record> records = Arrays.asList(
+				new Record(LOCAL, RecordPath.from("/dir/caf\u00e9"), 1, 1, false),
+				new Record(LOCAL, RecordPath.from("/dir/caf\u00e8"), 1, 1, false),
+				new Record(LOCAL, RecordPath.from("/dir/caf\u00ea/\u65e5\u672c"), 1, 1, false),
+				new Record(LOCAL, RecordPath.from("/dir/caf\u00ea/\u65e5\u8a9e"), 1, 1, false),
+				new Record(LOCAL, RecordPath.from("/dir/caf\ud83d\ude00"), 1, 1, false));
+		assertEquals(records, read(write(records)));
+	}
+
+	@Test
+	public void testReadAfterEnd() throws IOException {
+		RecordReader reader = new RecordReader(new ByteArrayInputStream(write(buildRecords())));
+		while (reader.read() != null) {
+			// read to the trailer
+		}
+		assertNull(reader.read());
+	}
+
+	@Test
+	public void testTruncatedTrailer() throws IOException {
+		byte[] bytes = write(buildRecords());
+		for (int cut = 1; cut <= 3; cut++) {
+			try {
+				read(Arrays.copyOf(bytes, bytes.length - cut));
+				fail("expected truncated stream to fail: " + cut);
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testSerializedRecordList() throws IOException, ClassNotFoundException {
+		RecordList list = RecordList.of(buildRecords());
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+			out.writeObject(list);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+			assertEquals(list, in.readObject());
+		}
+	}
+
+	private static List<Record> buildRecords() {
+		List<Record> records = new ArrayList<>();
+		records.add(new Record(LOCAL, RecordPath.from("/a/b/c.txt"), 1000, 5, false));
+		records.add(new Record(LOCAL, RecordPath.from("/a/b/d.txt"), 500, 0, false));
+		records.add(new Record(S3, RecordPath.from("/a/b/dir"), 10_000_000_000L, 0, true));
+		records.add(Record.noFile(LOCAL, "/x/missing"));
+		records.add(new Record(S3, RecordPath.from("relative/path.txt"), -7, Long.MAX_VALUE, false));
+		records.add(new Record(LOCAL, RecordPath.from("/"), 0, 0, true));
+		records.add(Record.noFile(S3, "/a/b/gone"));
+		return records;
+	}
+
+	private static byte[] write(List<Record> records) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (RecordWriter writer = new RecordWriter(baos)) {
+			writer.writeAll(records.iterator());
+		}
+		return baos.toByteArray();
+	}
+
+	private static List<Record> read(byte[] bytes) throws IOException {
+		try (RecordReader reader = new RecordReader(new ByteArrayInputStream(bytes))) {
+			return reader.readAll();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.filer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+/**
+ * @author Matt Ayres
+ */
+public class RecordListTest {
+	private static final URI LOCAL = URI.create("file:///");
+	private static final URI S3 = URI.create("s3://bucket");
+
+	@Test
+	public void testAddGet() {
+		List<Record> records = Arrays.asList(
+				record(LOCAL, "/", 1, 0, true),
+				record(LOCAL, "/top", 2, 10, false),
+				record(LOCAL, "/a/b/c.txt", 3, 20, false),
+				record(S3, "/a/b/c.txt", 4, 30, false),
+				record(LOCAL, "/a/b/d.txt", 5, 40, false),
+				record(LOCAL, "relative", 6, 50, false),
+				record(S3, "/a/\u00e9t\u00e9/\u6f22\u5b57", 7, Record.NO_EXIST_SIZE, false),
+				record(LOCAL, "/a/" + Strings.repeat("long", 100), 8, 60, true));
+
+		RecordList list = new RecordList();
+		records.forEach(list::add);
+		assertRecords(records, list);
+		assertRecords(records, RecordList.of(records));
+		assertRecords(records, records.stream().collect(RecordList.collector()));
+	}
+
+	@Test
+	public void testManyRecords() {
+		List<Record> records = randomRecords(20_000);
+		RecordList list = new RecordList(4);
+		list.addAll(records);
+		assertRecords(records, list);
+	}
+
+	@Test
+	public void testSet() {
+		List<Record> records = new ArrayList<>(randomRecords(100));
+		RecordList list = RecordList.of(records);
+
+		Record replacement = record(S3, "/replaced/" + Strings.repeat("x", 300), 99, 999, true);
+		assertEquals(records.get(42), list.set(42, replacement));
+		records.set(42, replacement);
+		list.set(7, records.get(8));
+		records.set(7, records.get(8));
+		list.set(0, record(LOCAL, "relative", 1, 2, false));
+		records.set(0, record(LOCAL, "relative", 1, 2, false));
+
+		assertRecords(records, list);
+	}
+
+	@Test
+	public void testSort() {
+		List<Record> records = new ArrayList<>(randomRecords(1000));
+		List<Comparator<Record>> comparators = Arrays.asList(Record.sizeAsc(), Record.timeDesc(),
+				Record.nameAsc(), Record.pathDesc(), Comparator.comparing(Record::isDir).thenComparing(Record::getUri));
+
+		for (Comparator<Record> comparator : comparators) {
+			RecordList list = RecordList.of(records);
+			list.sort(comparator);
+			records.sort(comparator);
+			assertRecords(records, list);
+
+			// entries added after a sort still line up with their fields
+			Record added = record(S3, "/after/sort", 5, 6, true);
+			list.add(added);
+			records.add(added);
+			assertRecords(records, list);
+			records.remove(records.size() - 1);
+		}
+	}
+
+	private static void assertRecords(List<Record> expected, List<Record> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Record record = expected.get(i);
+			Record copy = actual.get(i);
+			assertEquals(record, copy);
+			assertEquals(record.getUri(), copy.getUri());
+			assertEquals(record.getFolder(), copy.getFolder());
+			assertEquals(record.getName(), copy.getName());
+			assertEquals(record.isDir(), copy.isDir());
+		}
+	}
+
+	private static List<Record> randomRecords(int count) {
+		Random random = new Random(42);
+		List<URI> uris = Arrays.asList(LOCAL, S3, URI.create("hdfs://namenode:8020"));
+		List<Record> records = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			URI uri = uris.get(random.nextInt(uris.size()));
+			String path = "/dir" + random.nextInt(20) + "/sub" + random.nextInt(3) + "/file" + i;
+			records.add(record(uri, path, random.nextInt(1000), random.nextInt(100), random.nextBoolean()));
+		}
+		return records;
+	}
+
+	private static Record record(URI uri, String path, long time, long size, boolean dir) {
+		return new Record(uri, RecordPath.from(path), time, size, dir);
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.filer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.lithium.flow.config.Config;
+import com.lithium.flow.config.Configs;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+
+/**
+ * @author Matt Ayres
+ */
+public class S3FilerThrottleTest {
+	@Test
+	public void testThrottledRetries() throws IOException {
+		// two SlowDown attempts retried inside the client before the third succeeds
+		S3Filer filer = new S3Filer(config("0"), new ThrottlingS3(2, 3, true));
+		filer.getRecord("/a/b");
+		assertEquals(250, filer.getRate("/a/b"), 0.001);
+	}
+
+	@Test
+	public void testExhaustedRetries() {
+		S3Filer filer = new S3Filer(config("0"), new ThrottlingS3(3, 3, true));
+		try {
+			filer.getRecord("/a/b");
+			fail("expected throttling to fail the call");
+		} catch (IOException e) {
+			// expected
+		}
+		// each attempt counts once, the final exception is not counted again
+		assertEquals(125, filer.getRate("/a/b"), 0.001);
+	}
+
+	@Test
+	public void testWithoutHandler() {
+		S3Filer filer = new S3Filer(config("0"), new ThrottlingS3(3, 3, false));
+		try {
+			filer.getRecord("/a/b");
+			fail("expected throttling to fail the call");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(500, filer.getRate("/a/b"), 0.001);
+	}
+
+	@Test
+	public void testCooldown() throws IOException {
+		S3Filer filer = new S3Filer(config("1m"), new ThrottlingS3(2, 3, true));
+		filer.getRecord("/a/b");
+		assertEquals(500, filer.getRate("/a/b"), 0.001);
+	}
+
+	@Test
+	public void testMinRate() throws IOException {
+		S3Filer filer = new S3Filer(config("0"), new ThrottlingS3(20, 30, true));
+		filer.getRecord("/a/b");
+		assertEquals(100, filer.getRate("/a/b"), 0.001);
+	}
+
+	@Test
+	public void testRateLimitCeiling() throws IOException {
+		Config config = Configs.newBuilder(config("0")).setString("s3.rateIncrease", "100000").build();
+		S3Filer filer = new S3Filer(config, new ThrottlingS3(0, 1, true));
+		for (int i = 0; i < 10; i++) {
+			filer.getRecord("/a/b");
+		}
+		assertEquals(1000, filer.getRate("/a/b"), 0.001);
+	}
+
+	@Test
+	public void testIncrease() throws IOException {
+		Config config = Configs.newBuilder(config("0"))
+				.setString("s3.rateIncrease", "100000")
+				.setString("s3.maxRateLimit", "2000")
+				.build();
+		S3Filer filer = new S3Filer(config, new ThrottlingS3(0, 1, true));
+		filer.getRecord("/a/b");
+		assertTrue(filer.getRate("/a/b") > 1000);
+		for (int i = 0; i < 100; i++) {
+			filer.getRecord("/a/b");
+		}
+		assertEquals(2000, filer.getRate("/a/b"), 0.001);
+	}
+
+	@Test
+	public void testPrefixes() throws IOException {
+		Config config = Configs.newBuilder(config("0")).setString("s3.ratePrefixDepth", "1").build();
+		S3Filer filer = new S3Filer(config, new ThrottlingS3(1, 2, true));
+		filer.getRecord("/a/b");
+		assertEquals(500, filer.getRate("/a/b"), 0.001);
+		assertEquals(1000, filer.getRate("/b/a"), 0.001);
+		assertEquals(2, filer.getRates().size());
+	}
+
+	private static Config config(String cooldown) {
+		return Configs.newBuilder()
+				.setString("url", "s3://bucket")
+				.setString("s3.rateLimit", "1000")
+				.setString("s3.rateIncrease", "0")
+				.setString("s3.rateDecrease", "0.5")
+				.setString("s3.rateCooldown", cooldown)
+				.build();
+	}
+
+	/**
+	 * Stub that answers SlowDown to the first attempts of each call, calling the throttle handler for every
+	 * attempt the way the SDK's retry loop does when {@code useHandler} is set.
+	 */
+	private static class ThrottlingS3 extends AbstractAmazonS3 {
+		private final RequestHandler2 handler = S3Filer.throttleHandler();
+		private final int throttled;
+		private final int attempts;
+		private final boolean useHandler;
+
+		private ThrottlingS3(int throttled, int attempts, boolean useHandler) {
+			this.throttled = throttled;
+			this.attempts = attempts;
+			this.useHandler = useHandler;
+		}
+
+		@Override
+		public ObjectMetadata getObjectMetadata(String bucketName, String key) {
+			for (int attempt = 0; attempt < attempts; attempt++) {
+				AmazonS3Exception exception = attempt < throttled ? slowDown() : null;
+				if (useHandler) {
+					handler.afterAttempt(HandlerAfterAttemptContext.builder().withException(exception).build());
+				}
+				if (exception == null) {
+					ObjectMetadata metadata = new ObjectMetadata();
+					metadata.setLastModified(new Date(0));
+					metadata.setContentLength(0);
+					return metadata;
+				}
+			}
+			throw slowDown();
+		}
+
+		private static AmazonS3Exception slowDown() {
+			AmazonS3Exception exception = new AmazonS3Exception("Please reduce your request rate.");
+			exception.setErrorCode("SlowDown");
+			exception.setStatusCode(503);
+			return exception;
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.lithium.flow.filer.LocalFiler;
+import com.lithium.flow.util.CheckedFunction;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * @author Matt Ayres
+ */
+public class PagedDataIoTest {
+	private static final int PAGE_SIZE = 16;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<Long> streamOffsets = new ArrayList<>();
+	private final List<Long> closedOffsets = new ArrayList<>();
+	private File file;
+	private byte[] data;
+
+	@Before
+	public void setUp() throws IOException {
+		file = folder.newFile("paged.bin");
+		data = new byte[PAGE_SIZE * 10 + 5];
+		new Random(42).nextBytes(data);
+		Files.write(file.toPath(), data);
+	}
+
+	@Test
+	public void testReadAcrossPages() throws IOException {
+		try (PagedDataIo io = open(2)) {
+			assertEquals(data.length, io.length());
+
+			io.seek(PAGE_SIZE - 3);
+			assertEquals(ByteBuffer.wrap(data, PAGE_SIZE - 3, 8).getLong(), io.readLong());
+			io.seek(PAGE_SIZE * 2 - 1);
+			assertEquals(ByteBuffer.wrap(data, PAGE_SIZE * 2 - 1, 2).getShort(), io.readShort());
+
+			byte[] bytes = new byte[PAGE_SIZE * 3];
+			io.seek(5);
+			io.readFully(bytes);
+			assertArrayEquals(Arrays.copyOfRange(data, 5, 5 + bytes.length), bytes);
+
+			// the last page is partial
+			io.seek(data.length - 4);
+			assertEquals(ByteBuffer.wrap(data, data.length - 4, 4).getInt(), io.readInt());
+			try {
+				io.readByte();
+				fail("expected EOF");
+			} catch (EOFException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testWriteAcrossPages() throws IOException {
+		try (PagedDataIo io = open(4)) {
+			io.seek(PAGE_SIZE - 4);
+			io.writeLong(0x0102030405060708L);
+			io.seek(PAGE_SIZE * 3 - 1);
+			io.writeShort(0x0A0B);
+
+			io.seek(PAGE_SIZE - 4);
+			assertEquals(0x0102030405060708L, io.readLong());
+			io.seek(PAGE_SIZE * 3 - 1);
+			assertEquals(0x0A0B, io.readShort());
+		}
+
+		ByteBuffer.wrap(data, PAGE_SIZE - 4, 8).putLong(0x0102030405060708L);
+		ByteBuffer.wrap(data, PAGE_SIZE * 3 - 1, 2).putShort((short) 0x0A0B);
+		assertArrayEquals(data, readFile());
+	}
+
+	@Test
+	public void testWritePastEnd() throws IOException {
+		long pos = data.length + PAGE_SIZE * 3 + 7;
+		try (PagedDataIo io = open(2)) {
+			io.seek(pos);
+			io.writeInt(42);
+			assertEquals(pos + 4, io.length());
+
+			// the hole between the old end and the write reads as zeros
+			io.seek(data.length - 1);
+			assertEquals(data[data.length - 1], io.readByte());
+			byte[] hole = new byte[(int) (pos - data.length)];
+			io.readFully(hole);
+			assertArrayEquals(new byte[hole.length], hole);
+			assertEquals(42, io.readInt());
+		}
+
+		byte[] expected = Arrays.copyOf(data, (int) pos + 4);
+		ByteBuffer.wrap(expected, (int) pos, 4).putInt(42);
+		assertArrayEquals(expected, readFile());
+	}
+
+	@Test
+	public void testWriteIntoHole() throws IOException {
+		try (PagedDataIo io = open(2)) {
+			io.seek(data.length + PAGE_SIZE * 4);
+			io.writeByte(1);
+			io.seek(data.length + PAGE_SIZE);
+			io.writeByte(2);
+		}
+
+		byte[] expected = Arrays.copyOf(data, data.length + PAGE_SIZE * 4 + 1);
+		expected[data.length + PAGE_SIZE * 4] = 1;
+		expected[data.length + PAGE_SIZE] = 2;
+		assertArrayEquals(expected, readFile());
+	}
+
+	@Test
+	public void testEvictDirtyPage() throws IOException {
+		byte[] bytes = new byte[PAGE_SIZE * 2];
+		Arrays.fill(bytes, (byte) 1);
+		byte[] expected = data.clone();
+
+		try (PagedDataIo io = open(2)) {
+			// one sequential write dirties pages 0 to 2 without a seek, so only eviction writes page 0 back,
+			// and only its dirty part since the page starts with bytes that were never written
+			io.seek(3);
+			io.write(bytes);
+			System.arraycopy(bytes, 0, expected, 3, PAGE_SIZE - 3);
+			assertArrayEquals(expected, readFile());
+
+			// evicted pages are loaded again with the stored changes
+			io.seek(0);
+			byte[] page = new byte[PAGE_SIZE];
+			io.readFully(page);
+			assertArrayEquals(Arrays.copyOf(expected, PAGE_SIZE), page);
+		}
+
+		System.arraycopy(bytes, 0, expected, 3, bytes.length);
+		assertArrayEquals(expected, readFile());
+	}
+
+	@Test
+	public void testSeekFlush() throws IOException {
+		try (PagedDataIo io = open(8)) {
+			io.writeInt(7);
+			io.seek(2);
+			assertArrayEquals(data, readFile());
+
+			io.seek(PAGE_SIZE * 5);
+			ByteBuffer.wrap(data, 0, 4).putInt(7);
+			assertArrayEquals(data, readFile());
+		}
+	}
+
+	@Test
+	public void testStreamer() throws IOException {
+		try (PagedDataIo io = open(4, this::stream)) {
+			byte[] bytes = new byte[data.length];
+			io.readFully(bytes);
+			assertArrayEquals(data, bytes);
+		}
+
+		// the second consecutive miss switches to one stream for the rest of the file
+		assertEquals(Arrays.asList((long) PAGE_SIZE), streamOffsets);
+	}
+
+	@Test
+	public void testStreamerFallback() throws IOException {
+		try (PagedDataIo io = open(4, this::stream)) {
+			io.readByte();
+			io.seek(PAGE_SIZE);
+			io.readByte();
+			io.seek(PAGE_SIZE * 2);
+			io.readByte();
+			assertEquals(Arrays.asList((long) PAGE_SIZE), streamOffsets);
+
+			// an out of order miss drops the stream and reads from the delegate
+			io.seek(PAGE_SIZE * 7 + 1);
+			assertEquals(data[PAGE_SIZE * 7 + 1], io.readByte());
+			assertEquals(Arrays.asList((long) PAGE_SIZE), closedOffsets);
+
+			// the next consecutive miss opens a new stream, and a write back drops it
+			io.seek(PAGE_SIZE * 8);
+			assertEquals(data[PAGE_SIZE * 8], io.readByte());
+			assertEquals(Arrays.asList((long) PAGE_SIZE, PAGE_SIZE * 8L), streamOffsets);
+			io.writeByte(9);
+			io.flush();
+			assertEquals(streamOffsets, closedOffsets);
+
+			io.seek(PAGE_SIZE * 9);
+			assertEquals(data[PAGE_SIZE * 9], io.readByte());
+		}
+		assertEquals(streamOffsets, closedOffsets);
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		Files.write(file.toPath(), new byte[0]);
+		try (PagedDataIo io = open(2)) {
+			assertEquals(0, io.length());
+			assertEquals(null, io.readLine());
+			io.writeUTF("hello");
+			io.seek(0);
+			assertEquals("hello", io.readUTF());
+		}
+		assertTrue(file.length() > 0);
+	}
+
+	@Nonnull
+	private PagedDataIo open(int pages) throws IOException {
+		return new PagedDataIo(new LocalFiler().openFile(file.getPath(), true), PAGE_SIZE, pages);
+	}
+
+	@Nonnull
+	private PagedDataIo open(int pages, @Nonnull CheckedFunction<Long, InputStream, IOException> streamer)
+			throws IOException {
+		return new PagedDataIo(new LocalFiler().openFile(file.getPath(), true), PAGE_SIZE, pages, streamer);
+	}
+
+	@Nonnull
+	private InputStream stream(long offset) throws IOException {
+		streamOffsets.add(offset);
+		InputStream in = new FileInputStream(file);
+		ByteStreams.skipFully(in, offset);
+		return new FilterInputStream(in) {
+			@Override
+			public void close() throws IOException {
+				closedOffsets.add(offset);
+				super.close();
+			}
+		};
+	}
+
+	@Nonnull
+	private byte[] readFile() throws IOException {
+		return Files.readAllBytes(file.toPath());
+	}
+}
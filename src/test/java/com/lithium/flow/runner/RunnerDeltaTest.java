@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Lithium Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.lithium.flow.runner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Matt Ayres
+ */
+public class RunnerDeltaTest {
+	private static final int BLOCK_SIZE = 64;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Random random = new Random(42);
+	private long literals;
+
+	@Test
+	public void testNoBases() throws IOException {
+		byte[] data = randomBytes(1000);
+		assertArrayEquals(data, roundTrip(data));
+		assertEquals(data.length, literals);
+	}
+
+	@Test
+	public void testShorterThanBlock() throws IOException {
+		byte[] base = randomBytes(BLOCK_SIZE * 4);
+		byte[] data = Arrays.copyOf(base, BLOCK_SIZE - 1);
+		assertArrayEquals(data, roundTrip(data, base));
+		assertEquals(data.length, literals);
+	}
+
+	@Test
+	public void testEmptyData() throws IOException {
+		byte[] data = new byte[0];
+		assertArrayEquals(data, roundTrip(data, randomBytes(BLOCK_SIZE * 4)));
+		assertEquals(0, literals);
+	}
+
+	@Test
+	public void testShiftedInsertion() throws IOException {
+		byte[] base = randomBytes(BLOCK_SIZE * 100);
+		byte[] insert = randomBytes(7);
+		int at = BLOCK_SIZE * 40 + 13;
+
+		byte[] data = new byte[base.length + insert.length];
+		System.arraycopy(base, 0, data, 0, at);
+		System.arraycopy(insert, 0, data, at, insert.length);
+		System.arraycopy(base, at, data, at + insert.length, base.length - at);
+
+		assertArrayEquals(data, roundTrip(data, base));
+		// only the block broken by the insertion is sent, the rest is found again at its shifted position
+		assertTrue("literals: " + literals, literals < 2 * BLOCK_SIZE + insert.length);
+	}
+
+	@Test
+	public void testTrailingPartialBlock() throws IOException {
+		byte[] base = randomBytes(BLOCK_SIZE * 10 + 5);
+		assertArrayEquals(base, roundTrip(base, base));
+		assertEquals(5, literals);
+	}
+
+	@Test
+	public void testMergedCopies() throws IOException {
+		byte[] base = randomBytes(BLOCK_SIZE * 50);
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		assertEquals(0, RunnerDelta.writeDelta(base, sums(base), BLOCK_SIZE, delta));
+
+		// adjacent blocks of the same base are sent as one copy
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta.toByteArray()));
+		assertEquals('C', in.readUnsignedByte());
+		assertEquals(0, in.readInt());
+		assertEquals(0, in.readLong());
+		assertEquals(base.length, in.readInt());
+		assertEquals('E', in.readUnsignedByte());
+	}
+
+	@Test
+	public void testMultipleBases() throws IOException {
+		byte[] first = randomBytes(BLOCK_SIZE * 20);
+		byte[] second = randomBytes(BLOCK_SIZE * 20);
+		byte[] data = new byte[BLOCK_SIZE * 20 + 3];
+		System.arraycopy(second, 0, data, 0, BLOCK_SIZE * 10);
+		System.arraycopy(new byte[] { 1, 2, 3 }, 0, data, BLOCK_SIZE * 10, 3);
+		System.arraycopy(first, BLOCK_SIZE * 10, data, BLOCK_SIZE * 10 + 3, BLOCK_SIZE * 10);
+
+		assertArrayEquals(data, roundTrip(data, first, second));
+		assertEquals(3, literals);
+	}
+
+	@Test
+	public void testCorruptDelta() throws IOException {
+		byte[] data = randomBytes(1000);
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		RunnerDelta.writeDelta(data, sums(), BLOCK_SIZE, delta);
+		byte[] bytes = delta.toByteArray();
+		bytes[100] ^= 1;
+
+		File target = new File(folder.getRoot(), "target.jar");
+		assertFalse(RunnerDelta.patch(target.getPath(), new String[0], new ByteArrayInputStream(bytes)));
+		assertFalse(target.exists());
+		assertFalse(new File(target.getPath() + ".delta").exists());
+	}
+
+	/**
+	 * Writes the bases as jars, newest first, and runs the sums, delta and patch steps the way the runner does.
+	 */
+	private byte[] roundTrip(byte[] data, byte[]... bases) throws IOException {
+		List<RunnerDelta.Base> sums = sums(bases);
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		literals = RunnerDelta.writeDelta(data, sums, BLOCK_SIZE, delta);
+
+		String[] basePaths = sums.stream()
+				.map(base -> new File(folder.getRoot(), base.getName()).getPath())
+				.toArray(String[]::new);
+		File target = new File(folder.getRoot(), "target.jar");
+		assertTrue(RunnerDelta.patch(target.getPath(), basePaths, new ByteArrayInputStream(delta.toByteArray())));
+		return Files.readAllBytes(target.toPath());
+	}
+
+	private List<RunnerDelta.Base> sums(byte[]... bases) throws IOException {
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < bases.length; i++) {
+			File file = new File(folder.getRoot(), "base" + i + ".jar");
+			Files.write(file.toPath(), bases[i]);
+			assertTrue(file.setLastModified(time - i * 60_000L));
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RunnerDelta.sums(BLOCK_SIZE, 10, folder.getRoot(), "target.jar", out);
+		List<RunnerDelta.Base> sums = RunnerDelta.readSums(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(bases.length, sums.size());
+		return sums;
+	}
+
+	private byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+}